@@ -17,6 +17,24 @@ public class LDAPConstants {
      */
     public static final int LIMIT_RESULTS_DEFAULT = 1000;
 
+    // Bulk lookup
+
+    /**
+     * Default number of keys packed into a single OR filter by bulk lookups.
+     */
+    public static final int LOOKUP_CHUNK_SIZE_DEFAULT = 200;
+
+    /**
+     * Default maximum length, in characters, of a single OR filter built by bulk lookups.
+     * Kept well below the request size limits of common directory servers.
+     */
+    public static final int LOOKUP_FILTER_LENGTH_MAX = 8192;
+
+    /**
+     * Default number of chunks executed concurrently, each on its own connection, by bulk lookups.
+     */
+    public static final int LOOKUP_PARALLELISM_DEFAULT = 4;
+
     // SECURITY_AUTHENTICATION
 
     /**
@@ -29,6 +47,18 @@ public class LDAPConstants {
      */
     public static final String SECURITY_AUTHENTICATION_SIMPLE = "simple";
 
+    // JNDI environment properties
+
+    /**
+     * JNDI environment property listing the attributes whose values are returned as raw bytes.
+     */
+    public static final String ENV_BINARY_ATTRIBUTES = "java.naming.ldap.attributes.binary";
+
+    /**
+     * JNDI environment property naming the socket factory class used for new connections.
+     */
+    public static final String ENV_SOCKET_FACTORY = "java.naming.ldap.factory.socket";
+
     // LDAP Search Scopes
 
     /**
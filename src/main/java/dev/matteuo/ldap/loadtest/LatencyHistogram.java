@@ -0,0 +1,135 @@
+package dev.matteuo.ldap.loadtest;
+
+/**
+ * LatencyHistogram records latencies in microseconds into log-linear buckets with a relative precision of
+ * about 1.5%, using constant memory regardless of the number of samples.
+ * <p>
+ * Instances are not thread-safe; record into one histogram per thread and {@link #add(LatencyHistogram)} them.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Number of bits of precision kept for each value.
+     */
+    private static final int SUB_BUCKET_BITS = 7;
+
+    /**
+     * Number of values recorded exactly before buckets start to widen.
+     */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Number of buckets per power of two above {@link #SUB_BUCKET_COUNT}.
+     */
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+
+    /**
+     * Sample counts per bucket, large enough for any non-negative long value.
+     */
+    private final long[] counts = new long[SUB_BUCKET_COUNT + (64 - SUB_BUCKET_BITS) * HALF_SUB_BUCKET_COUNT];
+
+    /**
+     * Total number of recorded samples.
+     */
+    private long totalCount;
+
+    /**
+     * Largest recorded value.
+     */
+    private long maxValue;
+
+    /**
+     * Records a single latency.
+     *
+     * @param micros The latency in microseconds; negative values are recorded as zero.
+     */
+    public void record(long micros) {
+        long value = Math.max(0, micros);
+        counts[indexOf(value)]++;
+        totalCount++;
+        maxValue = Math.max(maxValue, value);
+    }
+
+    /**
+     * Adds all samples of another histogram to this one.
+     *
+     * @param other The histogram to add.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        maxValue = Math.max(maxValue, other.maxValue);
+    }
+
+    /**
+     * Gets the total number of recorded samples.
+     *
+     * @return The number of samples.
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Gets the largest recorded value.
+     *
+     * @return The largest value in microseconds.
+     */
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    /**
+     * Gets the value at the given percentile.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The highest value of the bucket holding the percentile, in microseconds, or 0 if empty.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * totalCount));
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            if (cumulative >= target) {
+                return Math.min(highestValueOf(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    /**
+     * Returns the bucket index of a value.
+     *
+     * @param value The non-negative value.
+     * @return The bucket index.
+     */
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1);
+        int top = (int) (value >>> shift);
+        return SUB_BUCKET_COUNT + (shift - 1) * HALF_SUB_BUCKET_COUNT + (top - HALF_SUB_BUCKET_COUNT);
+    }
+
+    /**
+     * Returns the highest value falling into a bucket.
+     *
+     * @param index The bucket index.
+     * @return The highest value of the bucket.
+     */
+    private static long highestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / HALF_SUB_BUCKET_COUNT + 1;
+        long top = (index - SUB_BUCKET_COUNT) % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+        return ((top + 1) << shift) - 1;
+    }
+}
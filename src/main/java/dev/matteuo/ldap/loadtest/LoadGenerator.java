@@ -0,0 +1,502 @@
+package dev.matteuo.ldap.loadtest;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.sdk.Entry;
+import dev.matteuo.ldap.utility.LDAPUtility;
+import dev.matteuo.ldap.utility.LookupResult;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * LoadGenerator replays a configurable mix of search, authentication and lookup operations against an LDAP server
+ * through {@link LDAPUtility} and reports throughput, error rates and latency percentiles.
+ * <p>
+ * In rate mode ({@code --rate > 0}) operations are scheduled at fixed intervals and latency is measured from the
+ * intended start time, so a stalled server is charged for the requests that queued up behind it (coordinated-omission
+ * correction). Otherwise each worker issues operations back to back and service time is reported.
+ * <p>
+ * Options, all in {@code --name=value} form:
+ * <ul>
+ *     <li>{@code url}: LDAP server URL; when omitted an embedded in-memory server seeded with synthetic users is started.</li>
+ *     <li>{@code ssl}: whether to use SSL (default false).</li>
+ *     <li>{@code base-dn}: base DN of the directory (default dc=example,dc=com).</li>
+ *     <li>{@code people-dn}: DN holding the user entries (default ou=people,&lt;base-dn&gt;).</li>
+ *     <li>{@code users}: number of users, named &lt;key-prefix&gt;0 to &lt;key-prefix&gt;N-1 (default 10000).</li>
+ *     <li>{@code key-attribute}: naming attribute of the users (default uid).</li>
+ *     <li>{@code key-prefix}: prefix of the user keys (default user).</li>
+ *     <li>{@code password}: password of every user (default password).</li>
+ *     <li>{@code mix}: relative weights, e.g. search=70,auth=20,lookup=10 (default).</li>
+ *     <li>{@code lookup-keys}: keys per lookup operation (default 50).</li>
+ *     <li>{@code concurrency}: number of worker threads (default 16).</li>
+ *     <li>{@code rate}: target operations per second, 0 for as fast as possible (default 0).</li>
+ *     <li>{@code duration}: measured seconds (default 30).</li>
+ *     <li>{@code warmup}: seconds run before measuring (default 5).</li>
+ * </ul>
+ */
+public class LoadGenerator {
+
+    /**
+     * Operations that can be replayed.
+     */
+    enum Operation {
+        SEARCH, AUTH, LOOKUP
+    }
+
+    /**
+     * Entry type the replayed operations map results to.
+     */
+    public static class Person {
+
+        /**
+         * Common Name (cn) attribute.
+         */
+        private String cn;
+
+        /**
+         * Surname (sn) attribute.
+         */
+        private String sn;
+
+        /**
+         * Email (mail) attribute.
+         */
+        private String mail;
+
+        /**
+         * Gets the Common Name (cn) attribute.
+         *
+         * @return the cn attribute.
+         */
+        public String getCn() {
+            return cn;
+        }
+    }
+
+    /**
+     * Occurrences of one kind of failure, with the message of the first one.
+     */
+    private static class Failure {
+
+        /**
+         * Number of occurrences.
+         */
+        long count;
+
+        /**
+         * Message of the first occurrence.
+         */
+        final String firstMessage;
+
+        /**
+         * Constructor for Failure.
+         *
+         * @param firstMessage The message of the first occurrence.
+         */
+        Failure(String firstMessage) {
+            this.firstMessage = firstMessage;
+        }
+    }
+
+    /**
+     * Per-worker statistics, merged once the run is over.
+     */
+    private static class WorkerStats {
+
+        /**
+         * Latency histograms indexed by operation ordinal.
+         */
+        final LatencyHistogram[] histograms = new LatencyHistogram[Operation.values().length];
+
+        /**
+         * Error counts indexed by operation ordinal.
+         */
+        final long[] errors = new long[Operation.values().length];
+
+        /**
+         * Failures indexed by operation and exception class.
+         */
+        final Map<String, Failure> failures = new TreeMap<>();
+
+        /**
+         * Constructor for WorkerStats.
+         */
+        WorkerStats() {
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new LatencyHistogram();
+            }
+        }
+    }
+
+    /**
+     * Utility the operations are replayed through.
+     */
+    private final LDAPUtility ldapUtility;
+
+    /**
+     * Parsed command-line options.
+     */
+    private final Map<String, String> options;
+
+    /**
+     * DN holding the user entries.
+     */
+    private final String peopleDn;
+
+    /**
+     * Naming attribute of the users.
+     */
+    private final String keyAttribute;
+
+    /**
+     * Prefix of the user keys.
+     */
+    private final String keyPrefix;
+
+    /**
+     * Password of every user.
+     */
+    private final String password;
+
+    /**
+     * Number of users.
+     */
+    private final int users;
+
+    /**
+     * Number of keys per lookup operation.
+     */
+    private final int lookupKeys;
+
+    /**
+     * Operations repeated by their weight, sampled uniformly.
+     */
+    private final Operation[] weightedOperations;
+
+    /**
+     * Constructor for LoadGenerator.
+     *
+     * @param ldapUtility The utility the operations are replayed through.
+     * @param options     The parsed command-line options.
+     */
+    public LoadGenerator(LDAPUtility ldapUtility, Map<String, String> options) {
+        this.ldapUtility = ldapUtility;
+        this.options = options;
+        this.peopleDn = option(options, "people-dn", "ou=people," + option(options, "base-dn", "dc=example,dc=com"));
+        this.keyAttribute = option(options, "key-attribute", "uid");
+        this.keyPrefix = option(options, "key-prefix", "user");
+        this.password = option(options, "password", "password");
+        this.users = Integer.parseInt(option(options, "users", "10000"));
+        this.lookupKeys = Integer.parseInt(option(options, "lookup-keys", "50"));
+        this.weightedOperations = parseMix(option(options, "mix", "search=70,auth=20,lookup=10"));
+    }
+
+    /**
+     * Runs the load generator from the command line.
+     *
+     * @param args The options, in --name=value form.
+     * @throws Exception If the embedded server cannot be started or the run is interrupted.
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        InMemoryDirectoryServer server = null;
+
+        try {
+            String url = options.get("url");
+            if (url == null) {
+                server = startEmbeddedServer(options);
+                url = "ldap://localhost:" + server.getListenPort();
+                System.out.println("Started embedded server at " + url);
+            }
+
+            LDAPUtility ldapUtility = new LDAPUtility(url, Boolean.parseBoolean(option(options, "ssl", "false")));
+            new LoadGenerator(ldapUtility, options).run();
+        } finally {
+            if (server != null) {
+                server.shutDown(true);
+            }
+        }
+    }
+
+    /**
+     * Runs the warmup and measured phases and prints the report.
+     * <p>
+     * Throughput is computed over the time actually taken to complete the measured operations, which in rate mode
+     * exceeds the nominal duration when the server cannot keep up with the target rate.
+     *
+     * @return The measured throughput in operations per second.
+     * @throws InterruptedException If interrupted while waiting for the workers.
+     */
+    public double run() throws InterruptedException {
+        int concurrency = Integer.parseInt(option(options, "concurrency", "16"));
+        double rate = Double.parseDouble(option(options, "rate", "0"));
+        long warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(option(options, "warmup", "5")));
+        long durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(option(options, "duration", "30")));
+
+        long intervalNanos = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+        long start = System.nanoTime();
+        long measureStart = start + warmupNanos;
+        long end = measureStart + durationNanos;
+        AtomicLong ticket = new AtomicLong();
+        AtomicLong lastCompletion = new AtomicLong(end);
+
+        System.out.println("Running " + (rate > 0 ? rate + " ops/s" : "closed loop") + " with " + concurrency
+                + " workers for " + TimeUnit.NANOSECONDS.toSeconds(durationNanos) + "s after "
+                + TimeUnit.NANOSECONDS.toSeconds(warmupNanos) + "s warmup");
+
+        WorkerStats[] stats = new WorkerStats[concurrency];
+        Thread[] workers = new Thread[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            WorkerStats workerStats = new WorkerStats();
+            stats[i] = workerStats;
+            workers[i] = new Thread(() -> work(workerStats, ticket, lastCompletion, intervalNanos, start, measureStart, end), "load-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        return report(stats, Math.max(durationNanos, lastCompletion.get() - measureStart));
+    }
+
+    /**
+     * Worker loop issuing operations until the end of the run.
+     *
+     * @param stats          The statistics of this worker.
+     * @param ticket         The shared schedule counter, used in rate mode.
+     * @param lastCompletion The latest completion time of a measured operation, shared by all workers.
+     * @param intervalNanos  The interval between scheduled operations, or 0 for closed loop.
+     * @param start          The start of the run.
+     * @param measureStart   The end of the warmup.
+     * @param end            The end of the run.
+     */
+    private void work(WorkerStats stats, AtomicLong ticket, AtomicLong lastCompletion, long intervalNanos,
+                      long start, long measureStart, long end) {
+        while (true) {
+            long intended;
+            if (intervalNanos > 0) {
+                intended = start + ticket.getAndIncrement() * intervalNanos;
+                long wait;
+                while ((wait = intended - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            } else {
+                intended = System.nanoTime();
+            }
+            if (intended >= end) {
+                return;
+            }
+
+            Operation operation = weightedOperations[ThreadLocalRandom.current().nextInt(weightedOperations.length)];
+            Exception failure = null;
+            try {
+                execute(operation);
+            } catch (Exception e) {
+                failure = e;
+            }
+
+            if (intended >= measureStart) {
+                long completed = System.nanoTime();
+                lastCompletion.accumulateAndGet(completed, Math::max);
+                stats.histograms[operation.ordinal()].record(TimeUnit.NANOSECONDS.toMicros(completed - intended));
+                if (failure != null) {
+                    stats.errors[operation.ordinal()]++;
+                    Exception cause = failure;
+                    stats.failures.computeIfAbsent(operation.name().toLowerCase(Locale.ROOT) + " " + failure.getClass().getName(),
+                            k -> new Failure(cause.getMessage())).count++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Executes a single operation against a random user.
+     *
+     * @param operation The operation to execute.
+     * @throws Exception If the operation fails or returns no result.
+     */
+    void execute(Operation operation) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String key = keyPrefix + random.nextInt(users);
+
+        switch (operation) {
+            case SEARCH:
+                if (ldapUtility.search(peopleDn, "(" + keyAttribute + "=" + key + ")", Person.class).isEmpty()) {
+                    throw new IllegalStateException("No entry for " + key);
+                }
+                break;
+            case AUTH:
+                String userDn = keyAttribute + "=" + key + "," + peopleDn;
+                if (ldapUtility.authentication(userDn, "(" + keyAttribute + "=" + key + ")", password, Person.class) == null) {
+                    throw new IllegalStateException("Authentication returned no entry for " + key);
+                }
+                break;
+            case LOOKUP:
+                List<String> keys = new ArrayList<>(lookupKeys);
+                for (int i = 0; i < lookupKeys; i++) {
+                    keys.add(keyPrefix + random.nextInt(users));
+                }
+                LookupResult<Person> result = ldapUtility.lookupAll(peopleDn, keyAttribute, keys, Person.class);
+                if (!result.getMissing().isEmpty()) {
+                    throw new IllegalStateException("Lookup missed " + result.getMissing().size() + " keys");
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown operation: " + operation);
+        }
+    }
+
+    /**
+     * Prints throughput, errors and latency percentiles per operation and overall, then the failures by exception class.
+     *
+     * @param stats         The statistics of every worker.
+     * @param durationNanos The time from the end of the warmup to the last measured completion.
+     * @return The overall throughput in operations per second.
+     */
+    private static double report(WorkerStats[] stats, long durationNanos) {
+        double seconds = durationNanos / 1e9;
+        LatencyHistogram total = new LatencyHistogram();
+        long totalErrors = 0;
+
+        System.out.println(String.format("%-8s %10s %10s %8s %10s %10s %10s %10s",
+                "op", "count", "ops/s", "errors", "p50 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            long errors = 0;
+            for (WorkerStats workerStats : stats) {
+                histogram.add(workerStats.histograms[operation.ordinal()]);
+                errors += workerStats.errors[operation.ordinal()];
+            }
+            if (histogram.getTotalCount() > 0) {
+                printRow(operation.name().toLowerCase(Locale.ROOT), histogram, errors, seconds);
+            }
+            total.add(histogram);
+            totalErrors += errors;
+        }
+        printRow("total", total, totalErrors, seconds);
+
+        // Failures by operation and exception class, so a misconfigured run explains itself
+        Map<String, Failure> failures = new TreeMap<>();
+        for (WorkerStats workerStats : stats) {
+            for (Map.Entry<String, Failure> entry : workerStats.failures.entrySet()) {
+                failures.computeIfAbsent(entry.getKey(), k -> new Failure(entry.getValue().firstMessage)).count += entry.getValue().count;
+            }
+        }
+        for (Map.Entry<String, Failure> entry : failures.entrySet()) {
+            System.out.println("failed   " + entry.getKey() + " x" + entry.getValue().count + ": " + entry.getValue().firstMessage);
+        }
+        return total.getTotalCount() / seconds;
+    }
+
+    /**
+     * Prints a single report row.
+     *
+     * @param name      The row name.
+     * @param histogram The latencies of the row.
+     * @param errors    The number of failed operations.
+     * @param seconds   The measured duration in seconds.
+     */
+    private static void printRow(String name, LatencyHistogram histogram, long errors, double seconds) {
+        long count = histogram.getTotalCount();
+        System.out.println(String.format("%-8s %10d %10.1f %7.2f%% %10.3f %10.3f %10.3f %10.3f",
+                name, count, count / seconds, count == 0 ? 0.0 : 100.0 * errors / count,
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0));
+    }
+
+    /**
+     * Starts an in-memory directory server seeded with synthetic users.
+     *
+     * @param options The parsed command-line options.
+     * @return The started server.
+     * @throws Exception If the server cannot be started or seeded.
+     */
+    static InMemoryDirectoryServer startEmbeddedServer(Map<String, String> options) throws Exception {
+        String baseDn = option(options, "base-dn", "dc=example,dc=com");
+        String peopleDn = option(options, "people-dn", "ou=people," + baseDn);
+        String keyAttribute = option(options, "key-attribute", "uid");
+        String keyPrefix = option(options, "key-prefix", "user");
+        String password = option(options, "password", "password");
+        int users = Integer.parseInt(option(options, "users", "10000"));
+
+        InMemoryDirectoryServerConfig config = new InMemoryDirectoryServerConfig(baseDn);
+        InMemoryDirectoryServer server = new InMemoryDirectoryServer(config);
+        server.startListening();
+
+        server.add("dn: " + baseDn, "objectClass: domain", "dc: " + baseDn.split("[=,]")[1]);
+        server.add("dn: " + peopleDn, "objectClass: organizationalUnit", "ou: people");
+        String[] departments = {"Engineering", "Sales", "Support", "Finance"};
+        for (int i = 0; i < users; i++) {
+            String key = keyPrefix + i;
+            Entry entry = new Entry(keyAttribute + "=" + key + "," + peopleDn);
+            entry.addAttribute("objectClass", "inetOrgPerson");
+            entry.addAttribute(keyAttribute, key);
+            entry.addAttribute("cn", "User " + i);
+            entry.addAttribute("sn", "User");
+            entry.addAttribute("mail", key + "@example.com");
+            entry.addAttribute("departmentNumber", departments[i % departments.length]);
+            entry.addAttribute("userPassword", password);
+            server.add(entry);
+        }
+
+        return server;
+    }
+
+    /**
+     * Expands a weighted mix into an array sampled uniformly.
+     *
+     * @param mix The mix, e.g. search=70,auth=20,lookup=10.
+     * @return The operations, each repeated by its weight.
+     */
+    static Operation[] parseMix(String mix) {
+        List<Operation> operations = new ArrayList<>();
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split("=");
+            Operation operation = Operation.valueOf(pair[0].trim().toUpperCase(Locale.ROOT));
+            int weight = Integer.parseInt(pair[1].trim());
+            for (int i = 0; i < weight; i++) {
+                operations.add(operation);
+            }
+        }
+        if (operations.isEmpty()) {
+            throw new IllegalArgumentException("Operation mix is empty: " + mix);
+        }
+        return operations.toArray(new Operation[0]);
+    }
+
+    /**
+     * Parses --name=value arguments.
+     *
+     * @param args The command-line arguments.
+     * @return The options indexed by name.
+     */
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    /**
+     * Returns an option value or its default.
+     *
+     * @param options      The parsed options.
+     * @param name         The option name.
+     * @param defaultValue The value to use when the option is absent.
+     * @return The option value.
+     */
+    private static String option(Map<String, String> options, String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+}
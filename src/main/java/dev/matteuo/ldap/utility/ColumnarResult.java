@@ -0,0 +1,407 @@
+package dev.matteuo.ldap.utility;
+
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.Attributes;
+import java.util.*;
+
+/**
+ * ColumnarResult stores the entries of a search column by column, with each attribute column dictionary-encoded:
+ * every distinct value is kept once and rows hold an int code into the dictionary.
+ * <p>
+ * Repetitive attributes such as objectClass, department or title then cost four bytes per value instead of a
+ * String per entry. Every value of multi-valued attributes is kept: each column stores the codes of all rows in a
+ * single array, with a per-row offset into it. Values keep the order returned by the server, which LDAP does not
+ * guarantee, so {@link Column#get(int)} is only meaningful for single-valued attributes; use
+ * {@link Column#getAll(int)} or {@link Column#valueCounts()} for multi-valued ones.
+ */
+public class ColumnarResult implements Iterable<ColumnarResult.Row> {
+
+    /**
+     * Code stored for rows where the attribute is absent.
+     */
+    public static final int ABSENT = -1;
+
+    /**
+     * Initial row capacity of the columns.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Distinguished names of the rows.
+     */
+    private String[] dns = new String[INITIAL_CAPACITY];
+
+    /**
+     * Attribute columns, in the requested order.
+     */
+    private final Column[] columns;
+
+    /**
+     * Attribute columns indexed by lower-case name.
+     */
+    private final Map<String, Column> columnsByName = new HashMap<>();
+
+    /**
+     * Number of rows.
+     */
+    private int size;
+
+    /**
+     * Whether all rows are added and the spare capacity released.
+     */
+    private boolean sealed;
+
+    /**
+     * Constructor for ColumnarResult.
+     *
+     * @param attributes The attribute names, one column each.
+     */
+    ColumnarResult(String[] attributes) {
+        columns = new Column[attributes.length];
+        for (int i = 0; i < attributes.length; i++) {
+            columns[i] = new Column(attributes[i]);
+            columnsByName.put(attributes[i].toLowerCase(Locale.ROOT), columns[i]);
+        }
+    }
+
+    /**
+     * Appends an entry as a new row.
+     *
+     * @param dn         The distinguished name of the entry.
+     * @param attributes The attributes of the entry.
+     * @throws NamingException     If an error occurs while reading the attributes.
+     * @throws IllegalStateException If the result is already sealed by {@link #trimToSize()}.
+     */
+    void addRow(String dn, Attributes attributes) throws NamingException {
+        if (sealed) {
+            throw new IllegalStateException("Result is sealed");
+        }
+        if (size == dns.length) {
+            dns = Arrays.copyOf(dns, size * 2);
+        }
+        dns[size] = dn;
+        for (Column column : columns) {
+            column.add(size, attributes.get(column.name));
+        }
+        size++;
+    }
+
+    /**
+     * Releases the spare capacity and the value-to-code indexes of the columns once all rows are added,
+     * sealing the result.
+     */
+    void trimToSize() {
+        sealed = true;
+        dns = Arrays.copyOf(dns, size);
+        for (Column column : columns) {
+            column.trimToSize(size);
+        }
+    }
+
+    /**
+     * Gets the number of rows.
+     *
+     * @return The number of rows.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the distinguished name of a row.
+     *
+     * @param row The row index.
+     * @return The distinguished name.
+     */
+    public String getDn(int row) {
+        checkRow(row);
+        return dns[row];
+    }
+
+    /**
+     * Gets the attribute columns, in the requested order.
+     *
+     * @return An unmodifiable list of columns.
+     */
+    public List<Column> getColumns() {
+        return Collections.unmodifiableList(Arrays.asList(columns));
+    }
+
+    /**
+     * Gets the column of an attribute.
+     *
+     * @param name The attribute name, matched case-insensitively.
+     * @return The column.
+     * @throws IllegalArgumentException If the attribute was not requested.
+     */
+    public Column getColumn(String name) {
+        Column column = columnsByName.get(name.toLowerCase(Locale.ROOT));
+        if (column == null) {
+            throw new IllegalArgumentException("Attribute not requested: " + name);
+        }
+        return column;
+    }
+
+    /**
+     * Gets a view of a row.
+     *
+     * @param row The row index.
+     * @return The row view.
+     */
+    public Row getRow(int row) {
+        checkRow(row);
+        return new Row(row);
+    }
+
+    /**
+     * Iterates over views of every row.
+     *
+     * @return An iterator of row views.
+     */
+    @Override
+    public Iterator<Row> iterator() {
+        return new Iterator<Row>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Row next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return new Row(next++);
+            }
+        };
+    }
+
+    /**
+     * Checks that a row index is within bounds.
+     *
+     * @param row The row index.
+     */
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of " + size);
+        }
+    }
+
+    /**
+     * A dictionary-encoded attribute column.
+     */
+    public class Column {
+
+        /**
+         * Attribute name.
+         */
+        private final String name;
+
+        /**
+         * Distinct values, indexed by code.
+         */
+        private final ArrayList<String> dictionary = new ArrayList<>();
+
+        /**
+         * Codes of the distinct values, only needed while rows are added.
+         */
+        private Map<String, Integer> codes = new HashMap<>();
+
+        /**
+         * Codes of the values of all rows, row after row.
+         */
+        private int[] valueCodes = new int[INITIAL_CAPACITY];
+
+        /**
+         * Offset of the first value of each row in {@link #valueCodes}, followed by the total number of values.
+         */
+        private int[] rowOffsets = new int[INITIAL_CAPACITY + 1];
+
+        /**
+         * Constructor for Column.
+         *
+         * @param name The attribute name.
+         */
+        private Column(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Stores the values of a row, adding each to the dictionary on first occurrence.
+         *
+         * @param row       The row index.
+         * @param attribute The attribute, or null if absent.
+         * @throws NamingException If an error occurs while reading the values.
+         */
+        private void add(int row, Attribute attribute) throws NamingException {
+            if (row + 1 == rowOffsets.length) {
+                rowOffsets = Arrays.copyOf(rowOffsets, row * 2 + 1);
+            }
+            int offset = rowOffsets[row];
+            if (attribute != null) {
+                NamingEnumeration<?> values = attribute.getAll();
+                while (values.hasMore()) {
+                    String text = values.next().toString();
+                    Integer code = codes.get(text);
+                    if (code == null) {
+                        code = dictionary.size();
+                        dictionary.add(text);
+                        codes.put(text, code);
+                    }
+                    if (offset == valueCodes.length) {
+                        valueCodes = Arrays.copyOf(valueCodes, offset * 2);
+                    }
+                    valueCodes[offset++] = code;
+                }
+            }
+            rowOffsets[row + 1] = offset;
+        }
+
+        /**
+         * Releases the spare capacity and the value-to-code index.
+         *
+         * @param size The number of rows.
+         */
+        private void trimToSize(int size) {
+            rowOffsets = Arrays.copyOf(rowOffsets, size + 1);
+            valueCodes = Arrays.copyOf(valueCodes, rowOffsets[size]);
+            dictionary.trimToSize();
+            codes = null;
+        }
+
+        /**
+         * Gets the attribute name.
+         *
+         * @return The attribute name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the first value of a row, in server order.
+         *
+         * @param row The row index.
+         * @return The value, or null if absent.
+         */
+        public String get(int row) {
+            int code = getCode(row);
+            return code == ABSENT ? null : dictionary.get(code);
+        }
+
+        /**
+         * Gets every value of a row, in server order.
+         *
+         * @param row The row index.
+         * @return The values, empty if absent.
+         */
+        public List<String> getAll(int row) {
+            checkRow(row);
+            List<String> values = new ArrayList<>(rowOffsets[row + 1] - rowOffsets[row]);
+            for (int i = rowOffsets[row]; i < rowOffsets[row + 1]; i++) {
+                values.add(dictionary.get(valueCodes[i]));
+            }
+            return values;
+        }
+
+        /**
+         * Gets the dictionary code of the first value of a row, in server order.
+         *
+         * @param row The row index.
+         * @return The code, or {@link #ABSENT}.
+         */
+        public int getCode(int row) {
+            checkRow(row);
+            return rowOffsets[row] == rowOffsets[row + 1] ? ABSENT : valueCodes[rowOffsets[row]];
+        }
+
+        /**
+         * Gets the distinct values of the column, indexed by code.
+         *
+         * @return An unmodifiable list of distinct values.
+         */
+        public List<String> getDictionary() {
+            return Collections.unmodifiableList(dictionary);
+        }
+
+        /**
+         * Counts the rows holding each distinct value, scanning the codes only.
+         *
+         * @return The number of rows per value, absent values excluded.
+         */
+        public Map<String, Integer> valueCounts() {
+            int[] counts = new int[dictionary.size()];
+            for (int i = 0; i < rowOffsets[size]; i++) {
+                counts[valueCodes[i]]++;
+            }
+
+            Map<String, Integer> valueCounts = new LinkedHashMap<>();
+            for (int code = 0; code < counts.length; code++) {
+                valueCounts.put(dictionary.get(code), counts[code]);
+            }
+            return valueCounts;
+        }
+    }
+
+    /**
+     * A view of a single row.
+     */
+    public class Row {
+
+        /**
+         * Row index.
+         */
+        private final int row;
+
+        /**
+         * Constructor for Row.
+         *
+         * @param row The row index.
+         */
+        private Row(int row) {
+            this.row = row;
+        }
+
+        /**
+         * Gets the row index.
+         *
+         * @return The row index.
+         */
+        public int getIndex() {
+            return row;
+        }
+
+        /**
+         * Gets the distinguished name of the row.
+         *
+         * @return The distinguished name.
+         */
+        public String getDn() {
+            return dns[row];
+        }
+
+        /**
+         * Gets the first value of an attribute in this row, in server order.
+         *
+         * @param name The attribute name, matched case-insensitively.
+         * @return The value, or null if absent.
+         */
+        public String get(String name) {
+            return getColumn(name).get(row);
+        }
+
+        /**
+         * Gets every value of an attribute in this row, in server order.
+         *
+         * @param name The attribute name, matched case-insensitively.
+         * @return The values, empty if absent.
+         */
+        public List<String> getAll(String name) {
+            return getColumn(name).getAll(row);
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package dev.matteuo.ldap.utility;
+
+import javax.naming.AuthenticationException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HedgingPolicy configures hedged reads: when a search or authentication has not completed within the hedge delay,
+ * the same request is sent to a replica, the first response wins and the other one is abandoned.
+ * <p>
+ * The delay is either fixed or follows a percentile of the recently observed latencies. Hedges are paid for with a
+ * budget earning {@code maxHedgeRatio} tokens per request, so they never exceed that share of the requests and can
+ * at most double the load on the directory.
+ * <p>
+ * Attempts run on a bounded pool of {@link #setMaxThreads(int) maxThreads} threads. When every thread is busy, for
+ * instance behind a stalled replica, requests run unhedged on the caller's thread and no hedge is sent.
+ */
+public class HedgingPolicy {
+
+    /**
+     * Number of recent latencies kept for the percentile-based delay.
+     */
+    private static final int LATENCY_WINDOW = 1024;
+
+    /**
+     * Number of new latencies after which the percentile-based delay is recomputed.
+     */
+    private static final int RECOMPUTE_INTERVAL = 64;
+
+    /**
+     * Maximum number of unused hedge tokens kept, allowing short bursts of hedges.
+     */
+    private static final double MAX_TOKENS = 10;
+
+    /**
+     * Default maximum number of threads running attempts.
+     */
+    private static final int DEFAULT_MAX_THREADS = 64;
+
+    /**
+     * Time after which idle threads are released, in seconds.
+     */
+    private static final long THREAD_KEEP_ALIVE_SECONDS = 60;
+
+    /**
+     * Server URLs hedges are sent to, in round-robin order.
+     */
+    private final List<String> replicaUrls;
+
+    /**
+     * Fixed hedge delay, also used until enough latencies are observed for the percentile.
+     */
+    private final long delayMillis;
+
+    /**
+     * Percentile of recent latencies used as the hedge delay, or 0 for the fixed delay.
+     */
+    private volatile double delayPercentile;
+
+    /**
+     * Maximum number of hedges per request, between 0 and 1.
+     */
+    private volatile double maxHedgeRatio = 0.1;
+
+    /**
+     * Unused hedge tokens.
+     */
+    private double tokens;
+
+    /**
+     * Ring buffer of recent latencies, in milliseconds.
+     */
+    private final long[] latencies = new long[LATENCY_WINDOW];
+
+    /**
+     * Number of latencies recorded so far.
+     */
+    private long latencyCount;
+
+    /**
+     * Current hedge delay, in milliseconds.
+     */
+    private volatile long currentDelayMillis;
+
+    /**
+     * Index of the next replica to hedge to.
+     */
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    /**
+     * Number of hedges sent.
+     */
+    private final AtomicLong hedgesSent = new AtomicLong();
+
+    /**
+     * Number of hedges that answered before the original request.
+     */
+    private final AtomicLong hedgesWon = new AtomicLong();
+
+    /**
+     * Bounded executor running the original requests and their hedges, rejecting attempts when every thread is busy.
+     */
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(0, DEFAULT_MAX_THREADS,
+            THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+        Thread thread = new Thread(runnable, "ldap-hedging");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Constructor for HedgingPolicy.
+     *
+     * @param replicaUrls The server URLs hedges are sent to.
+     * @param delayMillis The time to wait for the original request before hedging, in milliseconds.
+     */
+    public HedgingPolicy(List<String> replicaUrls, long delayMillis) {
+        if (replicaUrls.isEmpty()) {
+            throw new IllegalArgumentException("At least one replica URL is required");
+        }
+        this.replicaUrls = Collections.unmodifiableList(new ArrayList<>(replicaUrls));
+        this.delayMillis = delayMillis;
+        this.currentDelayMillis = delayMillis;
+    }
+
+    /**
+     * Uses a percentile of the recently observed latencies as the hedge delay, e.g. 95 to hedge the slowest 5%.
+     * The fixed delay applies until enough latencies are observed and acts as a lower bound.
+     *
+     * @param percentile The percentile, between 0 (exclusive) and 100, or 0 for the fixed delay.
+     * @return This policy.
+     */
+    public HedgingPolicy setDelayPercentile(double percentile) {
+        if (percentile < 0 || percentile >= 100) {
+            throw new IllegalArgumentException("Percentile must be in [0, 100): " + percentile);
+        }
+        this.delayPercentile = percentile;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of hedges per request.
+     *
+     * @param ratio The ratio, between 0 and 1; 1 allows every request to be hedged, doubling the load at most.
+     * @return This policy.
+     */
+    public HedgingPolicy setMaxHedgeRatio(double ratio) {
+        if (ratio < 0 || ratio > 1) {
+            throw new IllegalArgumentException("Hedge ratio must be in [0, 1]: " + ratio);
+        }
+        this.maxHedgeRatio = ratio;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of threads running attempts, bounding the threads held by stalled servers.
+     *
+     * @param maxThreads The maximum number of threads, at least 1.
+     * @return This policy.
+     */
+    public HedgingPolicy setMaxThreads(int maxThreads) {
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("maxThreads must be positive: " + maxThreads);
+        }
+        executor.setMaximumPoolSize(maxThreads);
+        return this;
+    }
+
+    /**
+     * Gets the server URLs hedges are sent to.
+     *
+     * @return An unmodifiable list of URLs.
+     */
+    public List<String> getReplicaUrls() {
+        return replicaUrls;
+    }
+
+    /**
+     * Gets the current hedge delay.
+     *
+     * @return The delay in milliseconds.
+     */
+    public long getCurrentDelayMillis() {
+        return currentDelayMillis;
+    }
+
+    /**
+     * Gets the number of hedges sent.
+     *
+     * @return The number of hedges sent.
+     */
+    public long getHedgesSent() {
+        return hedgesSent.get();
+    }
+
+    /**
+     * Gets the number of hedges that answered before the original request.
+     *
+     * @return The number of hedges won.
+     */
+    public long getHedgesWon() {
+        return hedgesWon.get();
+    }
+
+    /**
+     * Gets the number of attempts currently running on the hedging threads.
+     *
+     * @return The approximate number of running attempts.
+     */
+    int getRunningAttempts() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Runs an operation against the primary server, hedging it to a replica if it is slower than the delay.
+     * A rejected bind is a definitive answer: it fails the request at once, without waiting for the other attempt.
+     *
+     * @param <R>        The result type.
+     * @param primaryUrl The URL of the primary server.
+     * @param operation  The operation, run with the URL of the server to send it to.
+     * @return The result of the first successful attempt.
+     * @throws Exception The failure of the last attempt if every attempt failed.
+     */
+    <R> R execute(String primaryUrl, HedgedOperation<R> operation) throws Exception {
+        CompletionService<R> completionService = new ExecutorCompletionService<>(executor);
+        long start = System.nanoTime();
+        earnToken();
+
+        Future<R> primary;
+        try {
+            primary = completionService.submit(() -> operation.call(primaryUrl));
+        } catch (RejectedExecutionException e) {
+            // Every thread is busy: run unhedged on the caller's thread
+            return operation.call(primaryUrl);
+        }
+
+        Future<R> hedge = null;
+        Exception failure = null;
+        try {
+            // Inside the try so that an interrupted caller still cancels the primary attempt
+            Future<R> done = completionService.poll(currentDelayMillis, TimeUnit.MILLISECONDS);
+            if (done == null && trySpendToken()) {
+                String replicaUrl = replicaUrls.get(Math.floorMod(nextReplica.getAndIncrement(), replicaUrls.size()));
+                try {
+                    hedge = completionService.submit(() -> operation.call(replicaUrl));
+                    hedgesSent.incrementAndGet();
+                } catch (RejectedExecutionException e) {
+                    refundToken();
+                }
+            }
+
+            int pending = hedge == null ? 1 : 2;
+            while (pending > 0) {
+                Future<R> completed = done != null ? done : completionService.take();
+                done = null;
+                pending--;
+                try {
+                    R result = completed.get();
+                    if (completed == hedge) {
+                        hedgesWon.incrementAndGet();
+                    }
+                    recordLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    return result;
+                } catch (ExecutionException e) {
+                    failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    if (failure instanceof AuthenticationException) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            // Abandon the losing attempt; its context is closed when it unwinds
+            primary.cancel(true);
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+        }
+        throw failure;
+    }
+
+    /**
+     * Adds the per-request share of hedge tokens to the budget.
+     */
+    private synchronized void earnToken() {
+        tokens = Math.min(MAX_TOKENS, tokens + maxHedgeRatio);
+    }
+
+    /**
+     * Spends a hedge token if the budget allows it.
+     *
+     * @return true if a hedge may be sent.
+     */
+    private synchronized boolean trySpendToken() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    /**
+     * Returns an unused hedge token to the budget.
+     */
+    private synchronized void refundToken() {
+        tokens = Math.min(MAX_TOKENS, tokens + 1);
+    }
+
+    /**
+     * Records the latency of a completed request and recomputes the percentile-based delay periodically.
+     *
+     * @param millis The latency in milliseconds.
+     */
+    private void recordLatency(long millis) {
+        double percentile = delayPercentile;
+        if (percentile <= 0) {
+            return;
+        }
+
+        long[] snapshot = null;
+        synchronized (this) {
+            latencies[(int) (latencyCount % LATENCY_WINDOW)] = millis;
+            latencyCount++;
+            if (latencyCount >= RECOMPUTE_INTERVAL && latencyCount % RECOMPUTE_INTERVAL == 0) {
+                snapshot = Arrays.copyOf(latencies, (int) Math.min(latencyCount, LATENCY_WINDOW));
+            }
+        }
+
+        if (snapshot != null) {
+            Arrays.sort(snapshot);
+            int index = (int) Math.ceil(percentile / 100.0 * snapshot.length) - 1;
+            currentDelayMillis = Math.max(delayMillis, snapshot[Math.max(0, index)]);
+        }
+    }
+
+    /**
+     * An operation that can be sent to any server.
+     *
+     * @param <R> The result type.
+     */
+    @FunctionalInterface
+    interface HedgedOperation<R> {
+
+        /**
+         * Runs the operation against a server.
+         *
+         * @param serverUrl The URL of the server.
+         * @return The result.
+         * @throws Exception If the operation fails.
+         */
+        R call(String serverUrl) throws Exception;
+    }
+}
@@ -7,10 +7,13 @@ import org.slf4j.LoggerFactory;
 import javax.naming.*;
 import javax.naming.directory.*;
 import javax.naming.ldap.*;
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * LDAPUtility provides methods to perform LDAP searches, authenticate users, and map LDAP attributes to objects.
@@ -32,6 +35,41 @@ public class LDAPUtility {
      */
     private final boolean useSsl;
 
+    /**
+     * TLS settings shared by every connection, or null to use the JVM defaults when SSL is enabled.
+     */
+    private final TLSConfiguration tlsConfiguration;
+
+    /**
+     * Flag indicating whether identical concurrent searches share one server operation.
+     */
+    private volatile boolean requestCoalescing;
+
+    /**
+     * Searches currently executing, indexed by their parameters, when coalescing is enabled.
+     */
+    private final ConcurrentHashMap<List<Object>, CompletableFuture<List<Attributes>>> inFlightSearches = new ConcurrentHashMap<>();
+
+    /**
+     * Number of searches served by joining an identical in-flight search.
+     */
+    private final AtomicLong coalescedSearchCount = new AtomicLong();
+
+    /**
+     * Permits limiting the number of concurrent server operations, or null for no limit.
+     */
+    private volatile Semaphore concurrencyLimiter;
+
+    /**
+     * Maximum time to wait for a permit, in milliseconds.
+     */
+    private volatile long concurrencyTimeoutMillis;
+
+    /**
+     * Policy hedging slow reads to replicas, or null to send every read to the configured URL only.
+     */
+    private volatile HedgingPolicy hedgingPolicy;
+
     /**
      * Constructor for LDAPUtility with SSL enabled by default.
      *
@@ -50,35 +88,238 @@ public class LDAPUtility {
     public LDAPUtility(String url, boolean useSsl) {
         this.url = url;
         this.useSsl = useSsl;
+        this.tlsConfiguration = null;
+    }
+
+    /**
+     * Constructor for LDAPUtility with configured TLS, either LDAPS or StartTLS.
+     *
+     * @param url              The URL of the LDAP server.
+     * @param tlsConfiguration The TLS settings shared by every connection.
+     */
+    public LDAPUtility(String url, TLSConfiguration tlsConfiguration) {
+        this.url = url;
+        this.useSsl = true;
+        this.tlsConfiguration = tlsConfiguration;
+    }
+
+    /**
+     * Gets the TLS settings shared by every connection, including handshake metrics.
+     *
+     * @return The TLS configuration, or null if none was provided.
+     */
+    public TLSConfiguration getTlsConfiguration() {
+        return tlsConfiguration;
+    }
+
+    /**
+     * Enables or disables request coalescing. When enabled, concurrent calls to
+     * {@link #search(String, String, Class, int, int, int)} with the same parameters share a single server operation
+     * and all receive its result. The raw entries are shared and each caller maps its own objects, so callers never
+     * see each other's changes. Callers joining a search wait at most the concurrency timeout when a limit is set,
+     * and retry if the caller running it is interrupted.
+     *
+     * @param requestCoalescing A boolean indicating whether to coalesce identical concurrent searches.
+     * @return This LDAPUtility.
+     */
+    public LDAPUtility setRequestCoalescing(boolean requestCoalescing) {
+        this.requestCoalescing = requestCoalescing;
+        return this;
+    }
+
+    /**
+     * Gets the number of searches served by joining an identical in-flight search.
+     *
+     * @return The number of coalesced searches.
+     */
+    public long getCoalescedSearchCount() {
+        return coalescedSearchCount.get();
+    }
+
+    /**
+     * Limits the number of server operations running concurrently through this utility. Callers beyond the limit
+     * queue in arrival order and fail with a {@link LimitExceededException} if no slot frees up in time.
+     *
+     * @param maxConcurrent The maximum number of concurrent operations, or 0 to remove the limit.
+     * @param timeoutMillis The maximum time to wait for a slot, in milliseconds.
+     * @return This LDAPUtility.
+     */
+    public LDAPUtility setConcurrencyLimit(int maxConcurrent, long timeoutMillis) {
+        this.concurrencyTimeoutMillis = timeoutMillis;
+        this.concurrencyLimiter = maxConcurrent > 0 ? new Semaphore(maxConcurrent, true) : null;
+        return this;
+    }
+
+    /**
+     * Waits for a slot of the concurrency limiter, if one is configured.
+     *
+     * @return The limiter the slot was taken from, to be passed to {@link #releasePermit(Semaphore)}, or null.
+     * @throws LimitExceededException If no slot frees up before the timeout.
+     * @throws InterruptedException   If interrupted while waiting.
+     */
+    private Semaphore acquirePermit() throws LimitExceededException, InterruptedException {
+        Semaphore limiter = concurrencyLimiter;
+        if (limiter == null) {
+            return null;
+        }
+        if (!limiter.tryAcquire(concurrencyTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            logger.warn("Timed out after " + concurrencyTimeoutMillis + " ms waiting for an LDAP operation slot");
+            throw new LimitExceededException("Timed out waiting for an LDAP operation slot");
+        }
+        return limiter;
+    }
+
+    /**
+     * Returns a slot to the concurrency limiter it was taken from.
+     *
+     * @param permit The limiter returned by {@link #acquirePermit()}, or null.
+     */
+    private static void releasePermit(Semaphore permit) {
+        if (permit != null) {
+            permit.release();
+        }
+    }
+
+    /**
+     * Enables hedged reads: a search or authentication slower than the policy delay is also sent to a replica,
+     * and the first response wins.
+     * <p>
+     * A hedged authentication sends a second bind to the replica. A wrong password then counts twice toward the
+     * lockout policy when both binds reach the directory; a bind rejected before the delay is never hedged.
+     *
+     * @param hedgingPolicy The hedging policy, or null to disable hedging.
+     * @return This LDAPUtility.
+     */
+    public LDAPUtility setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        this.hedgingPolicy = hedgingPolicy;
+        return this;
+    }
+
+    /**
+     * Checks whether a failure comes from an interrupted attempt, such as the losing side of a hedged read,
+     * rather than from the directory. The interrupt flag is restored for the caller.
+     *
+     * @param e The failure.
+     * @return true if the attempt was interrupted.
+     */
+    private static boolean isAbandoned(Exception e) {
+        if (e instanceof InterruptedNamingException || e instanceof InterruptedException || Thread.currentThread().isInterrupted()) {
+            Thread.currentThread().interrupt();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Runs a read against the configured URL, hedging it to a replica if a hedging policy is set.
+     *
+     * @param <R>       The result type.
+     * @param operation The read, run with the URL of the server to send it to.
+     * @return The result of the read.
+     * @throws Exception If the read fails.
+     */
+    private <R> R hedged(HedgingPolicy.HedgedOperation<R> operation) throws Exception {
+        HedgingPolicy policy = hedgingPolicy;
+        if (policy == null) {
+            return operation.call(url);
+        }
+        return policy.execute(url, operation);
+    }
+
+    /**
+     * Checks whether connections are upgraded with StartTLS.
+     *
+     * @return true if StartTLS is used.
+     */
+    private boolean isStartTls() {
+        return tlsConfiguration != null && tlsConfiguration.getMode() == TLSConfiguration.Mode.START_TLS;
+    }
+
+    /**
+     * Adds the security protocol and socket factory properties to a JNDI environment.
+     *
+     * @param env The JNDI environment.
+     */
+    private void putSecurityProtocol(Hashtable<String, String> env) {
+        if (tlsConfiguration == null) {
+            if (useSsl) {
+                env.put(Context.SECURITY_PROTOCOL, "ssl");
+            }
+        } else if (tlsConfiguration.getMode() == TLSConfiguration.Mode.LDAPS) {
+            env.put(Context.SECURITY_PROTOCOL, "ssl");
+            env.put(LDAPConstants.ENV_SOCKET_FACTORY, TLSSocketFactory.class.getName());
+        }
+    }
+
+    /**
+     * Opens an LDAP context, installing the configured socket factory and negotiating StartTLS if enabled.
+     *
+     * @param env The JNDI environment.
+     * @return An initialized LdapContext.
+     * @throws NamingException If an error occurs while creating the context.
+     * @throws IOException     If the StartTLS negotiation fails.
+     */
+    private LdapContext openContext(Hashtable<String, String> env) throws NamingException, IOException {
+        if (tlsConfiguration == null) {
+            return new InitialLdapContext(env, null);
+        }
+
+        LdapContext ctx = null;
+        TLSSocketFactory.setCurrent(tlsConfiguration.getSocketFactory());
+        try {
+            ctx = new InitialLdapContext(env, null);
+            if (isStartTls()) {
+                StartTlsResponse tls = (StartTlsResponse) ctx.extendedOperation(new StartTlsRequest());
+                tls.negotiate(tlsConfiguration.getSocketFactory());
+            }
+            return ctx;
+        } catch (NamingException | IOException e) {
+            closeResources(ctx, null);
+            throw e;
+        } finally {
+            TLSSocketFactory.setCurrent(null);
+        }
     }
 
     /**
      * Creates an authenticated LDAP context using the provided principal and credentials.
      *
+     * @param serverUrl   The URL of the server to connect to.
      * @param principal   The security principal (bind DN).
      * @param credentials The security credentials (password).
      * @return An initialized DirContext.
      * @throws Exception If an error occurs while creating the context.
      */
-    private DirContext createContextAuth(String principal, String credentials) throws Exception {
+    private DirContext createContextAuth(String serverUrl, String principal, String credentials) throws Exception {
         Hashtable<String, String> env = new Hashtable<>();
 
         // Conversion to UTF-8
         String asciiEncodedString = new String(credentials.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
 
         env.put(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.ldap.LdapCtxFactory");
-        env.put(Context.PROVIDER_URL, url);
-        if(useSsl){
-            env.put(Context.SECURITY_PROTOCOL, "ssl");
-        }
-        env.put(Context.SECURITY_AUTHENTICATION, LDAPConstants.SECURITY_AUTHENTICATION_SIMPLE);
-        env.put(Context.SECURITY_PRINCIPAL, principal);
-        env.put(Context.SECURITY_CREDENTIALS, asciiEncodedString);
+        env.put(Context.PROVIDER_URL, serverUrl);
+        putSecurityProtocol(env);
 
         try {
             logger.info("Creating authenticated LDAP context with principal: " + principal);
-            return new InitialDirContext(env);
+            if (isStartTls()) {
+                // Bind only once the connection is encrypted
+                env.put(Context.SECURITY_AUTHENTICATION, LDAPConstants.SECURITY_AUTHENTICATION_NONE);
+                LdapContext ctx = openContext(env);
+                ctx.addToEnvironment(Context.SECURITY_AUTHENTICATION, LDAPConstants.SECURITY_AUTHENTICATION_SIMPLE);
+                ctx.addToEnvironment(Context.SECURITY_PRINCIPAL, principal);
+                ctx.addToEnvironment(Context.SECURITY_CREDENTIALS, asciiEncodedString);
+                return ctx;
+            }
+            env.put(Context.SECURITY_AUTHENTICATION, LDAPConstants.SECURITY_AUTHENTICATION_SIMPLE);
+            env.put(Context.SECURITY_PRINCIPAL, principal);
+            env.put(Context.SECURITY_CREDENTIALS, asciiEncodedString);
+            return openContext(env);
         } catch (NamingException e) {
+            if (isAbandoned(e)) {
+                logger.debug("Creating authenticated LDAP context abandoned: " + e.getMessage());
+                throw e;
+            }
             logger.error("Failed to create authenticated LDAP context: " + e.getMessage());
             throw e;
         } catch (Exception e) {
@@ -99,12 +340,29 @@ public class LDAPUtility {
      * @throws Exception If an error occurs during the authentication or object instantiation.
      */
     public <T> T authentication(String baseDn, String filter, String credentials, Class<T> clazz) throws Exception {
+        return hedged(serverUrl -> authenticate(serverUrl, baseDn, filter, credentials, clazz));
+    }
+
+    /**
+     * Authenticates a user against the given server and maps the results to an instance of the specified class.
+     *
+     * @param <T>         The type of the class to map the search results to.
+     * @param serverUrl   The URL of the server to authenticate against.
+     * @param baseDn      The base DN to start the search.
+     * @param filter      The search filter.
+     * @param credentials The credentials for authentication.
+     * @param clazz       The class to map the search results to.
+     * @return An instance of the specified class with the search results.
+     * @throws Exception If an error occurs during the authentication or object instantiation.
+     */
+    private <T> T authenticate(String serverUrl, String baseDn, String filter, String credentials, Class<T> clazz) throws Exception {
         T resultObj = null;
         DirContext ctx = null;
         NamingEnumeration<SearchResult> answer = null;
 
+        Semaphore permit = acquirePermit();
         try {
-            ctx = createContextAuth(baseDn, credentials);
+            ctx = createContextAuth(serverUrl, baseDn, credentials);
 
             SearchControls ctls = new SearchControls();
             ctls.setSearchScope(SearchControls.SUBTREE_SCOPE);
@@ -122,10 +380,15 @@ public class LDAPUtility {
                 }
             }
         } catch (NamingException | IllegalAccessException | InstantiationException | InvocationTargetException | NoSuchMethodException e) {
+            if (isAbandoned(e)) {
+                logger.debug("LDAP operation abandoned: " + e.getMessage());
+                throw e;
+            }
             logger.error("LDAP operation failed", e);
             throw e;
         } finally {
             closeResources(ctx, answer);
+            releasePermit(permit);
         }
 
         return resultObj;
@@ -205,18 +468,35 @@ public class LDAPUtility {
      * @throws Exception If an error occurs while creating the context.
      */
     private LdapContext createContextSearch() throws Exception {
+        return createContextSearch(url, null);
+    }
+
+    /**
+     * Creates an LDAP context for search operations that returns the given attributes as raw bytes.
+     *
+     * @param serverUrl        The URL of the server to connect to.
+     * @param binaryAttributes The attributes to return undecoded, or null to decode all string attributes.
+     * @return An initialized LdapContext.
+     * @throws Exception If an error occurs while creating the context.
+     */
+    private LdapContext createContextSearch(String serverUrl, String[] binaryAttributes) throws Exception {
         Hashtable<String, String> env = new Hashtable<>();
         env.put(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.ldap.LdapCtxFactory");
-        env.put(Context.PROVIDER_URL, url);
-        if(useSsl){
-            env.put(Context.SECURITY_PROTOCOL, "ssl");
-        }
+        env.put(Context.PROVIDER_URL, serverUrl);
+        putSecurityProtocol(env);
         env.put(Context.SECURITY_AUTHENTICATION, LDAPConstants.SECURITY_AUTHENTICATION_NONE);
+        if (binaryAttributes != null && binaryAttributes.length > 0) {
+            env.put(LDAPConstants.ENV_BINARY_ATTRIBUTES, String.join(" ", binaryAttributes));
+        }
 
         try {
-            logger.info("Creating LDAP context with URL: " + url + " and SSL: " + useSsl);
-            return new InitialLdapContext(env, null);
+            logger.info("Creating LDAP context with URL: " + serverUrl + " and SSL: " + useSsl + (isStartTls() ? " (StartTLS)" : ""));
+            return openContext(env);
         } catch (NamingException e) {
+            if (isAbandoned(e)) {
+                logger.debug("Creating LDAP context abandoned: " + e.getMessage());
+                throw e;
+            }
             logger.error("Failed to create LDAP context: " + e.getMessage());
             throw e;
         } catch (Exception e) {
@@ -253,76 +533,222 @@ public class LDAPUtility {
      * @throws Exception If an error occurs during the search or object instantiation.
      */
     public <T> List<T> search(String baseDn, String filter, Class<T> clazz, int limitResults, int pageSize, int searchScope) throws Exception {
-        LdapContext ctx = null;
-        List<T> results = new ArrayList<>();
+        // Use reflection to get attribute names from the fields of the class
+        String[] attributeNames = getAttributeNames(clazz);
 
-        try {
-            ctx = createContextSearch();
+        if (!requestCoalescing) {
+            return hedged(serverUrl -> executeSearch(serverUrl, baseDn, filter, attributeNames, limitResults, pageSize, searchScope,
+                    sr -> mapSearchAttributes(sr.getAttributes(), attributeNames, clazz)));
+        }
+
+        List<Object> key = Arrays.asList(baseDn, filter, Arrays.asList(attributeNames), limitResults, pageSize, searchScope);
+        while (true) {
+            CompletableFuture<List<Attributes>> future = new CompletableFuture<>();
+            CompletableFuture<List<Attributes>> inFlight = inFlightSearches.putIfAbsent(key, future);
+
+            if (inFlight != null) {
+                List<Attributes> shared;
+                try {
+                    shared = awaitCoalescedSearch(inFlight);
+                } catch (CancellationException e) {
+                    // The leader was abandoned by its caller: retry, possibly as the new leader
+                    continue;
+                }
+                coalescedSearchCount.incrementAndGet();
+                return mapSearchResults(shared, attributeNames, clazz);
+            }
 
-            // Use reflection to get attribute names from the fields of the class
-            Field[] fields = clazz.getDeclaredFields();
-            String[] attributeNames = new String[fields.length];
-            for (int i = 0; i < fields.length; i++) {
-                attributeNames[i] = fields[i].getName();
+            List<Attributes> entries;
+            try {
+                entries = hedged(serverUrl -> executeSearch(serverUrl, baseDn, filter, attributeNames, limitResults, pageSize, searchScope,
+                        SearchResult::getAttributes));
+                future.complete(entries);
+            } catch (Exception e) {
+                // Followers must not fail with an interruption they never received
+                if (isAbandoned(e)) {
+                    future.cancel(false);
+                } else {
+                    future.completeExceptionally(e);
+                }
+                throw e;
+            } finally {
+                inFlightSearches.remove(key, future);
+            }
+            // Every caller maps its own objects from the shared, read-only entries
+            return mapSearchResults(entries, attributeNames, clazz);
+        }
+    }
+
+    /**
+     * Waits for an identical in-flight search, for at most the concurrency timeout when a limiter is configured.
+     *
+     * @param inFlight The in-flight search.
+     * @return The shared attributes of the entries found.
+     * @throws CancellationException  If the in-flight search was abandoned by its caller.
+     * @throws LimitExceededException If the search does not complete before the concurrency timeout.
+     * @throws Exception              The failure of the in-flight search.
+     */
+    private List<Attributes> awaitCoalescedSearch(CompletableFuture<List<Attributes>> inFlight) throws Exception {
+        try {
+            if (concurrencyLimiter == null) {
+                return inFlight.get();
+            }
+            return inFlight.get(concurrencyTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("Timed out after " + concurrencyTimeoutMillis + " ms waiting for a coalesced LDAP search");
+            throw new LimitExceededException("Timed out waiting for a coalesced LDAP search");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
             }
+            throw e;
+        }
+    }
+
+    /**
+     * Executes a search against the given server and converts each entry as it is received.
+     *
+     * @param <E>            The type each entry is converted to.
+     * @param serverUrl      The URL of the server to search.
+     * @param baseDn         The base DN to start the search.
+     * @param filter         The search filter.
+     * @param attributeNames The attributes to return.
+     * @param limitResults   The maximum number of results to return.
+     * @param pageSize       The number of results per page.
+     * @param searchScope    The scope of the search.
+     * @param converter      The conversion applied to each entry.
+     * @return The converted entries.
+     * @throws Exception If an error occurs during the search or the conversion.
+     */
+    private <E> List<E> executeSearch(String serverUrl, String baseDn, String filter, String[] attributeNames, int limitResults, int pageSize,
+                                      int searchScope, SearchResultConverter<E> converter) throws Exception {
+        LdapContext ctx = null;
+        List<E> results = new ArrayList<>();
+
+        Semaphore permit = acquirePermit();
+        try {
+            ctx = createContextSearch(serverUrl, null);
 
             // Search controls
             SearchControls ctls = new SearchControls();
             ctls.setReturningAttributes(attributeNames);
             ctls.setSearchScope(searchScope);
 
-            byte[] cookie = null;
-            int totalResults = 0;
-
-            do {
-                ctx.setRequestControls(new Control[]{new PagedResultsControl(pageSize, cookie, Control.CRITICAL)});
-                NamingEnumeration<SearchResult> answer = ctx.search(baseDn, filter, ctls);
+            pagedSearch(ctx, baseDn, filter, ctls, limitResults, pageSize,
+                    sr -> results.add(converter.convert(sr)));
 
+        } catch (Exception e) {
+            if (isAbandoned(e)) {
+                logger.debug("LDAP search operation abandoned: " + e.getMessage());
+                throw e;
+            }
+            logger.error("LDAP search operation failed: " + e.getMessage());
+            throw e;
+        } finally {
+            if (ctx != null) {
                 try {
-                    while (answer.hasMoreElements()) {
-                        if (limitResults != -1 && totalResults >= limitResults) {
-                            break;
-                        }
-                        SearchResult sr = answer.nextElement();
-                        Attributes attrs = sr.getAttributes();
-
-                        T obj = clazz.getDeclaredConstructor().newInstance();
-                        for (String attrName : attributeNames) {
-                            if (attrs.get(attrName) != null) {
-                                String value = attrs.get(attrName).get().toString();
-                                Field field = clazz.getDeclaredField(attrName);
-                                field.setAccessible(true);
-                                field.set(obj, value);
-                            }
-                        }
-                        results.add(obj);
-                        totalResults++;
-                    }
+                    ctx.close();
+                } catch (Exception e) {
+                    logger.error("Error closing context connection: " + e.getMessage());
+                }
+            }
+            releasePermit(permit);
+        }
 
-                    if (totalResults >= limitResults) {
-                        break;
-                    }
+        return results;
+    }
 
-                    // Cookie for the next page
-                    Control[] controls = ctx.getResponseControls();
-                    if (controls != null) {
-                        for (Control control : controls) {
-                            if (control instanceof PagedResultsResponseControl) {
-                                PagedResultsResponseControl prrc = (PagedResultsResponseControl) control;
-                                cookie = prrc.getCookie();
-                            }
-                        }
-                    }
-                } finally {
-                    if (answer != null) {
-                        try {
-                            answer.close();
-                        } catch (Exception e) {
-                            logger.error("Error closing search result: " + e.getMessage());
-                        }
-                    }
+    /**
+     * Searches an LDAP directory and returns lazy views of the entries, with the attributes to return derived from
+     * the fields of the specified class.
+     *
+     * @param baseDn The base DN to start the search.
+     * @param filter The search filter.
+     * @param clazz  The class whose fields define the attributes to return.
+     * @return A list of lazy entry views.
+     * @throws Exception If an error occurs during the search.
+     */
+    public List<LazyEntry> searchLazy(String baseDn, String filter, Class<?> clazz) throws Exception {
+        return searchLazy(baseDn, filter, getAttributeNames(clazz), LDAPConstants.LIMIT_RESULTS_DEFAULT, LDAPConstants.PAGE_SIZE_DEFAULT, LDAPConstants.SEARCH_SCOPE_SUBTREE);
+    }
+
+    /**
+     * Searches an LDAP directory and returns lazy views of the entries.
+     * <p>
+     * The requested attributes are returned by the server as raw bytes and kept undecoded; each value is
+     * decoded only when it is read from the {@link LazyEntry}, and no object is instantiated until
+     * {@link LazyEntry#materialize(Class)} is called.
+     *
+     * @param baseDn       The base DN to start the search.
+     * @param filter       The search filter.
+     * @param attributes   The attributes to return.
+     * @param limitResults The maximum number of results to return.
+     * @param pageSize     The number of results per page.
+     * @param searchScope  The scope of the search.
+     * @return A list of lazy entry views.
+     * @throws Exception If an error occurs during the search.
+     */
+    public List<LazyEntry> searchLazy(String baseDn, String filter, String[] attributes, int limitResults, int pageSize, int searchScope) throws Exception {
+        LdapContext ctx = null;
+        List<LazyEntry> results = new ArrayList<>();
+
+        Semaphore permit = acquirePermit();
+        try {
+            ctx = createContextSearch(url, attributes);
+
+            // Search controls
+            SearchControls ctls = new SearchControls();
+            ctls.setReturningAttributes(attributes);
+            ctls.setSearchScope(searchScope);
+
+            pagedSearch(ctx, baseDn, filter, ctls, limitResults, pageSize,
+                    sr -> results.add(new LazyEntry(sr.getNameInNamespace(), sr.getAttributes())));
+
+        } catch (Exception e) {
+            logger.error("LDAP search operation failed: " + e.getMessage());
+            throw e;
+        } finally {
+            if (ctx != null) {
+                try {
+                    ctx.close();
+                } catch (Exception e) {
+                    logger.error("Error closing context connection: " + e.getMessage());
                 }
-            } while (cookie != null);
+            }
+            releasePermit(permit);
+        }
+
+        return results;
+    }
+
+    /**
+     * Searches an LDAP directory and stores the results column by column with dictionary-encoded values.
+     *
+     * @param baseDn       The base DN to start the search.
+     * @param filter       The search filter.
+     * @param attributes   The attributes to return, one column each.
+     * @param limitResults The maximum number of results to return.
+     * @param pageSize     The number of results per page.
+     * @param searchScope  The scope of the search.
+     * @return The columnar search results.
+     * @throws Exception If an error occurs during the search.
+     */
+    public ColumnarResult searchColumnar(String baseDn, String filter, String[] attributes, int limitResults, int pageSize, int searchScope) throws Exception {
+        LdapContext ctx = null;
+        ColumnarResult results = new ColumnarResult(attributes);
+
+        Semaphore permit = acquirePermit();
+        try {
+            ctx = createContextSearch();
+
+            // Search controls
+            SearchControls ctls = new SearchControls();
+            ctls.setReturningAttributes(attributes);
+            ctls.setSearchScope(searchScope);
+
+            pagedSearch(ctx, baseDn, filter, ctls, limitResults, pageSize,
+                    sr -> results.addRow(sr.getNameInNamespace(), sr.getAttributes()));
+            results.trimToSize();
 
         } catch (Exception e) {
             logger.error("LDAP search operation failed: " + e.getMessage());
@@ -335,11 +761,433 @@ public class LDAPUtility {
                     logger.error("Error closing context connection: " + e.getMessage());
                 }
             }
+            releasePermit(permit);
+        }
+
+        return results;
+    }
+
+    /**
+     * Callback receiving each entry returned by a paged search.
+     */
+    @FunctionalInterface
+    private interface SearchResultHandler {
+
+        /**
+         * Handles a single search result.
+         *
+         * @param sr The search result.
+         * @throws Exception If an error occurs while handling the result.
+         */
+        void handle(SearchResult sr) throws Exception;
+    }
+
+    /**
+     * Conversion applied to each entry returned by a search.
+     *
+     * @param <E> The type each entry is converted to.
+     */
+    @FunctionalInterface
+    private interface SearchResultConverter<E> {
+
+        /**
+         * Converts a single search result.
+         *
+         * @param sr The search result.
+         * @return The converted entry.
+         * @throws Exception If an error occurs while converting the result.
+         */
+        E convert(SearchResult sr) throws Exception;
+    }
+
+    /**
+     * Runs a search using the paged results control and passes each returned entry to the handler.
+     *
+     * @param ctx          The LDAP context to search with.
+     * @param baseDn       The base DN to start the search.
+     * @param filter       The search filter.
+     * @param ctls         The search controls.
+     * @param limitResults The maximum number of results to return.
+     * @param pageSize     The number of results per page.
+     * @param handler      The handler receiving each search result.
+     * @throws Exception If an error occurs during the search or while handling a result.
+     */
+    private void pagedSearch(LdapContext ctx, String baseDn, String filter, SearchControls ctls, int limitResults, int pageSize,
+                             SearchResultHandler handler) throws Exception {
+        byte[] cookie = null;
+        int totalResults = 0;
+
+        do {
+            ctx.setRequestControls(new Control[]{new PagedResultsControl(pageSize, cookie, Control.CRITICAL)});
+            NamingEnumeration<SearchResult> answer = ctx.search(baseDn, filter, ctls);
+
+            try {
+                while (answer.hasMoreElements()) {
+                    if (limitResults != -1 && totalResults >= limitResults) {
+                        break;
+                    }
+                    handler.handle(answer.nextElement());
+                    totalResults++;
+                }
+
+                if (totalResults >= limitResults) {
+                    break;
+                }
+
+                // Cookie for the next page
+                Control[] controls = ctx.getResponseControls();
+                if (controls != null) {
+                    for (Control control : controls) {
+                        if (control instanceof PagedResultsResponseControl) {
+                            PagedResultsResponseControl prrc = (PagedResultsResponseControl) control;
+                            cookie = prrc.getCookie();
+                        }
+                    }
+                }
+            } finally {
+                if (answer != null) {
+                    try {
+                        answer.close();
+                    } catch (Exception e) {
+                        logger.error("Error closing search result: " + e.getMessage());
+                    }
+                }
+            }
+        } while (cookie != null);
+    }
+
+    /**
+     * Returns the attribute names requested for the specified class, one per declared field.
+     *
+     * @param clazz The class whose fields define the attributes.
+     * @return The names of the declared fields of the class.
+     */
+    private static String[] getAttributeNames(Class<?> clazz) {
+        Field[] fields = clazz.getDeclaredFields();
+        String[] attributeNames = new String[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            attributeNames[i] = fields[i].getName();
         }
+        return attributeNames;
+    }
 
+    /**
+     * Maps the attributes of each search result to a new instance of the specified class.
+     *
+     * @param <T>            The type of the class to map the attributes to.
+     * @param entries        The attributes of the search results.
+     * @param attributeNames The attribute names to map, each matching a declared field of the class.
+     * @param clazz          The class to map the attributes to.
+     * @return A new list of new instances of the specified class.
+     * @throws Exception If an error occurs while reading the attributes or setting the fields.
+     */
+    private static <T> List<T> mapSearchResults(List<Attributes> entries, String[] attributeNames, Class<T> clazz) throws Exception {
+        List<T> results = new ArrayList<>(entries.size());
+        for (Attributes attrs : entries) {
+            results.add(mapSearchAttributes(attrs, attributeNames, clazz));
+        }
         return results;
     }
 
+    /**
+     * Maps the requested attributes of a search result to a new instance of the specified class.
+     *
+     * @param <T>            The type of the class to map the attributes to.
+     * @param attrs          The attributes of the search result.
+     * @param attributeNames The attribute names to map, each matching a declared field of the class.
+     * @param clazz          The class to map the attributes to.
+     * @return An instance of the specified class with the mapped attributes.
+     * @throws Exception If an error occurs while reading the attributes or setting the fields.
+     */
+    private static <T> T mapSearchAttributes(Attributes attrs, String[] attributeNames, Class<T> clazz) throws Exception {
+        T obj = clazz.getDeclaredConstructor().newInstance();
+        for (String attrName : attributeNames) {
+            if (attrs.get(attrName) != null) {
+                String value = attrs.get(attrName).get().toString();
+                Field field = clazz.getDeclaredField(attrName);
+                field.setAccessible(true);
+                field.set(obj, value);
+            }
+        }
+        return obj;
+    }
+
+    /**
+     * Escapes a value for safe use inside an LDAP search filter, as described in RFC 4515.
+     *
+     * @param value The raw assertion value.
+     * @return The escaped value.
+     */
+    public static String escapeFilterValue(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\5c");
+                    break;
+                case '*':
+                    sb.append("\\2a");
+                    break;
+                case '(':
+                    sb.append("\\28");
+                    break;
+                case ')':
+                    sb.append("\\29");
+                    break;
+                case '\0':
+                    sb.append("\\00");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Looks up many entries by the values of a single attribute with default chunking and parallelism.
+     *
+     * @param <T>       The type of the class to map the entries to.
+     * @param baseDn    The base DN to start the search.
+     * @param attribute The attribute holding the keys (e.g. uid or mail).
+     * @param keys      The keys to look up.
+     * @param clazz     The class to map the entries to.
+     * @return The entries found for each key and the keys that matched nothing.
+     * @throws Exception If an error occurs during the search or object instantiation.
+     */
+    public <T> LookupResult<T> lookupAll(String baseDn, String attribute, Collection<String> keys, Class<T> clazz) throws Exception {
+        return lookupAll(baseDn, attribute, keys, clazz, LDAPConstants.LOOKUP_CHUNK_SIZE_DEFAULT, LDAPConstants.LOOKUP_PARALLELISM_DEFAULT);
+    }
+
+    /**
+     * Looks up many entries by the values of a case-insensitive attribute.
+     *
+     * @param <T>         The type of the class to map the entries to.
+     * @param baseDn      The base DN to start the search.
+     * @param attribute   The attribute holding the keys (e.g. uid or mail).
+     * @param keys        The keys to look up.
+     * @param clazz       The class to map the entries to.
+     * @param chunkSize   The maximum number of keys per search filter.
+     * @param parallelism The maximum number of chunks searched concurrently.
+     * @return The entries found for each key and the keys that matched nothing.
+     * @throws Exception If an error occurs during the search or object instantiation.
+     * @see #lookupAll(String, String, Collection, Class, int, int, boolean)
+     */
+    public <T> LookupResult<T> lookupAll(String baseDn, String attribute, Collection<String> keys, Class<T> clazz, int chunkSize, int parallelism) throws Exception {
+        return lookupAll(baseDn, attribute, keys, clazz, chunkSize, parallelism, true);
+    }
+
+    /**
+     * Looks up many entries by the values of a single attribute.
+     * <p>
+     * Keys are deduplicated, escaped and packed into OR filters of at most {@code chunkSize} keys and
+     * {@link LDAPConstants#LOOKUP_FILTER_LENGTH_MAX} characters. Chunks are searched concurrently, each on its own
+     * connection. With {@code ignoreCase}, keys differing only in case are searched once, but every spelling passed
+     * by the caller is reported, either found or missing.
+     * <p>
+     * Returned entries are matched back to keys by exact or case-insensitive string comparison, so only attributes
+     * with a caseExact or caseIgnore equality rule are supported. Entries matched by the server under other rules,
+     * such as telephoneNumber ignoring spaces and hyphens, match no key: they are logged and their keys reported
+     * missing.
+     *
+     * @param <T>         The type of the class to map the entries to.
+     * @param baseDn      The base DN to start the search.
+     * @param attribute   The attribute holding the keys (e.g. uid or mail).
+     * @param keys        The keys to look up.
+     * @param clazz       The class to map the entries to.
+     * @param chunkSize   The maximum number of keys per search filter.
+     * @param parallelism The maximum number of chunks searched concurrently.
+     * @param ignoreCase  Whether the attribute matches case-insensitively.
+     * @return The entries found for each key and the keys that matched nothing.
+     * @throws Exception If an error occurs during the search or object instantiation.
+     */
+    public <T> LookupResult<T> lookupAll(String baseDn, String attribute, Collection<String> keys, Class<T> clazz, int chunkSize, int parallelism,
+                                         boolean ignoreCase) throws Exception {
+        if (chunkSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("chunkSize and parallelism must be positive");
+        }
+
+        // Deduplicate keys, remembering every spelling of each
+        Map<String, Set<String>> spellingsByNormalized = new LinkedHashMap<>();
+        for (String key : keys) {
+            if (key != null) {
+                spellingsByNormalized.computeIfAbsent(normalizeKey(key, ignoreCase), k -> new LinkedHashSet<>()).add(key);
+            }
+        }
+
+        List<String> uniqueKeys = new ArrayList<>(spellingsByNormalized.size());
+        for (Set<String> spellings : spellingsByNormalized.values()) {
+            uniqueKeys.add(spellings.iterator().next());
+        }
+        Set<String> normalizedKeys = spellingsByNormalized.keySet();
+
+        List<String> filters = buildLookupFilters(attribute, uniqueKeys, chunkSize);
+        Map<String, T> foundByNormalized = new HashMap<>();
+
+        if (!filters.isEmpty()) {
+            String[] attributeNames = getAttributeNames(clazz);
+            Set<String> returningAttributes = new LinkedHashSet<>(Arrays.asList(attributeNames));
+            returningAttributes.add(attribute);
+            String[] returning = returningAttributes.toArray(new String[0]);
+
+            logger.info("Looking up " + uniqueKeys.size() + " keys in " + filters.size() + " chunks");
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, filters.size()));
+            try {
+                List<Future<Map<String, T>>> futures = new ArrayList<>();
+                for (String filter : filters) {
+                    futures.add(executor.submit(() -> lookupChunk(baseDn, filter, attribute, returning, attributeNames, normalizedKeys, ignoreCase, clazz)));
+                }
+                for (Future<Map<String, T>> future : futures) {
+                    try {
+                        for (Map.Entry<String, T> entry : future.get().entrySet()) {
+                            foundByNormalized.putIfAbsent(entry.getKey(), entry.getValue());
+                        }
+                    } catch (ExecutionException e) {
+                        logger.error("LDAP lookup operation failed: " + e.getCause().getMessage());
+                        if (e.getCause() instanceof Exception) {
+                            throw (Exception) e.getCause();
+                        }
+                        throw e;
+                    }
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        // Report the result under every spelling the caller passed
+        Map<String, T> found = new LinkedHashMap<>();
+        Set<String> missing = new LinkedHashSet<>();
+        for (Map.Entry<String, Set<String>> entry : spellingsByNormalized.entrySet()) {
+            T obj = foundByNormalized.get(entry.getKey());
+            for (String spelling : entry.getValue()) {
+                if (obj != null) {
+                    found.put(spelling, obj);
+                } else {
+                    missing.add(spelling);
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            logger.warn("Lookup found no entry for " + missing.size() + " of " + (found.size() + missing.size()) + " keys");
+        }
+
+        return new LookupResult<>(found, missing);
+    }
+
+    /**
+     * Packs escaped equality assertions into OR filters bounded by key count and filter length.
+     *
+     * @param attribute The attribute holding the keys.
+     * @param keys      The deduplicated keys.
+     * @param chunkSize The maximum number of keys per filter.
+     * @return The filters to execute.
+     */
+    private static List<String> buildLookupFilters(String attribute, Collection<String> keys, int chunkSize) {
+        List<String> filters = new ArrayList<>();
+        StringBuilder chunk = new StringBuilder();
+        int count = 0;
+
+        for (String key : keys) {
+            String assertion = "(" + attribute + "=" + escapeFilterValue(key) + ")";
+            // "(|" and ")" wrap every chunk
+            if (count > 0 && (count >= chunkSize || chunk.length() + assertion.length() + 3 > LDAPConstants.LOOKUP_FILTER_LENGTH_MAX)) {
+                filters.add(wrapOrFilter(chunk, count));
+                chunk.setLength(0);
+                count = 0;
+            }
+            chunk.append(assertion);
+            count++;
+        }
+        if (count > 0) {
+            filters.add(wrapOrFilter(chunk, count));
+        }
+
+        return filters;
+    }
+
+    /**
+     * Wraps the assertions of a chunk in an OR filter, unless the chunk holds a single assertion.
+     *
+     * @param chunk The concatenated assertions.
+     * @param count The number of assertions in the chunk.
+     * @return The filter for the chunk.
+     */
+    private static String wrapOrFilter(StringBuilder chunk, int count) {
+        return count == 1 ? chunk.toString() : "(|" + chunk + ")";
+    }
+
+    /**
+     * Normalizes a key for matching against attribute values.
+     *
+     * @param key        The key to normalize.
+     * @param ignoreCase Whether the attribute matches case-insensitively.
+     * @return The normalized key.
+     */
+    private static String normalizeKey(String key, boolean ignoreCase) {
+        return ignoreCase ? key.toLowerCase(Locale.ROOT) : key;
+    }
+
+    /**
+     * Searches a single lookup chunk on its own LDAP context and indexes the results by normalized key.
+     *
+     * @param <T>              The type of the class to map the entries to.
+     * @param baseDn           The base DN to start the search.
+     * @param filter           The OR filter of the chunk.
+     * @param attribute        The attribute holding the keys.
+     * @param returning        The attributes to request from the server.
+     * @param attributeNames   The attributes to map to the class.
+     * @param normalizedKeys   The normalized requested keys.
+     * @param ignoreCase       Whether the attribute matches case-insensitively.
+     * @param clazz            The class to map the entries to.
+     * @return The mapped entries indexed by normalized key.
+     * @throws Exception If an error occurs during the search or object instantiation.
+     */
+    private <T> Map<String, T> lookupChunk(String baseDn, String filter, String attribute, String[] returning,
+                                           String[] attributeNames, Set<String> normalizedKeys, boolean ignoreCase, Class<T> clazz) throws Exception {
+        Map<String, T> found = new HashMap<>();
+        LdapContext ctx = null;
+        NamingEnumeration<SearchResult> answer = null;
+
+        Semaphore permit = acquirePermit();
+        try {
+            ctx = createContextSearch();
+
+            SearchControls ctls = new SearchControls();
+            ctls.setReturningAttributes(returning);
+            ctls.setSearchScope(LDAPConstants.SEARCH_SCOPE_SUBTREE);
+
+            answer = ctx.search(baseDn, filter, ctls);
+            while (answer.hasMoreElements()) {
+                SearchResult sr = answer.nextElement();
+                Attributes attrs = sr.getAttributes();
+                Attribute keyAttr = attrs.get(attribute);
+
+                T obj = null;
+                NamingEnumeration<?> values = keyAttr == null ? null : keyAttr.getAll();
+                while (values != null && values.hasMore()) {
+                    String key = normalizeKey(values.next().toString(), ignoreCase);
+                    if (normalizedKeys.contains(key)) {
+                        if (obj == null) {
+                            obj = mapSearchAttributes(attrs, attributeNames, clazz);
+                        }
+                        found.putIfAbsent(key, obj);
+                    }
+                }
+                if (obj == null) {
+                    logger.warn("Lookup entry " + sr.getNameInNamespace() + " matches no requested " + attribute
+                            + " value; the attribute's matching rule is not supported");
+                }
+            }
+        } finally {
+            closeResources(ctx, answer);
+            releasePermit(permit);
+        }
+
+        return found;
+    }
+
     /**
      * Generates a Java class definition based on the provided LDAP search parameters.
      *
@@ -373,6 +1221,7 @@ public class LDAPUtility {
         LdapContext ctx = null;
         Set<String> attributesSet = new HashSet<>();
 
+        Semaphore permit = acquirePermit();
         try {
             ctx = createContextSearch();
 
@@ -381,54 +1230,14 @@ public class LDAPUtility {
             ctls.setReturningAttributes(null); // Return all attributes
             ctls.setSearchScope(searchScope);
 
-            byte[] cookie = null;
-            int totalResults = 0;
-
-            do {
-                ctx.setRequestControls(new Control[]{new PagedResultsControl(pageSize, cookie, Control.CRITICAL)});
-                NamingEnumeration<SearchResult> answer = ctx.search(baseDn, filter, ctls);
-
-                try {
-                    while (answer.hasMoreElements()) {
-                        if (limitResults != -1 && totalResults >= limitResults) {
-                            break;
-                        }
-                        SearchResult sr = answer.nextElement();
-                        Attributes attrs = sr.getAttributes();
-
-                        // Add all attribute names to the set
-                        NamingEnumeration<? extends Attribute> allAttrs = attrs.getAll();
-                        while (allAttrs.hasMore()) {
-                            Attribute attr = allAttrs.next();
-                            attributesSet.add(attr.getID());
-                        }
-                        totalResults++;
-                    }
-
-                    if (totalResults >= limitResults) {
-                        break;
-                    }
-
-                    // Cookie for the next page
-                    Control[] controls = ctx.getResponseControls();
-                    if (controls != null) {
-                        for (Control control : controls) {
-                            if (control instanceof PagedResultsResponseControl) {
-                                PagedResultsResponseControl prrc = (PagedResultsResponseControl) control;
-                                cookie = prrc.getCookie();
-                            }
-                        }
-                    }
-                } finally {
-                    if (answer != null) {
-                        try {
-                            answer.close();
-                        } catch (Exception e) {
-                            logger.error("Error closing search result: " + e.getMessage());
-                        }
-                    }
+            pagedSearch(ctx, baseDn, filter, ctls, limitResults, pageSize, sr -> {
+                // Add all attribute names to the set
+                NamingEnumeration<? extends Attribute> allAttrs = sr.getAttributes().getAll();
+                while (allAttrs.hasMore()) {
+                    Attribute attr = allAttrs.next();
+                    attributesSet.add(attr.getID());
                 }
-            } while (cookie != null);
+            });
 
         } catch (Exception e) {
             logger.error("LDAP search operation failed: " + e.getMessage());
@@ -441,6 +1250,7 @@ public class LDAPUtility {
                     logger.error("Error closing context connection: " + e.getMessage());
                 }
             }
+            releasePermit(permit);
         }
 
         // Convert the Set to a List before returning
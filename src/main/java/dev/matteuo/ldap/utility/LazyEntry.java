@@ -0,0 +1,182 @@
+package dev.matteuo.ldap.utility;
+
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.Attributes;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * LazyEntry is a lightweight view of an LDAP entry that decodes attribute values only when they are accessed.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public class LazyEntry {
+
+    /**
+     * Distinguished name of the entry.
+     */
+    private final String dn;
+
+    /**
+     * Raw attributes of the entry as returned by the server.
+     */
+    private final Attributes attributes;
+
+    /**
+     * First values decoded so far, indexed by lower-case attribute name.
+     */
+    private Map<String, String> decoded;
+
+    /**
+     * Constructor for LazyEntry.
+     *
+     * @param dn         The distinguished name of the entry.
+     * @param attributes The raw attributes of the entry.
+     */
+    public LazyEntry(String dn, Attributes attributes) {
+        this.dn = dn;
+        this.attributes = attributes;
+    }
+
+    /**
+     * Gets the distinguished name of the entry.
+     *
+     * @return The distinguished name.
+     */
+    public String getDn() {
+        return dn;
+    }
+
+    /**
+     * Gets the raw attributes of the entry, undecoded.
+     *
+     * @return The raw attributes.
+     */
+    Attributes getRawAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Checks whether the entry holds the given attribute.
+     *
+     * @param name The attribute name.
+     * @return true if the attribute is present.
+     */
+    public boolean has(String name) {
+        return attributes.get(name) != null;
+    }
+
+    /**
+     * Gets the first value of an attribute as a String, decoding it on first access.
+     *
+     * @param name The attribute name.
+     * @return The first value, or null if the attribute is absent.
+     * @throws NamingException If an error occurs while reading the attribute.
+     */
+    public String get(String name) throws NamingException {
+        String key = name.toLowerCase(Locale.ROOT);
+        if (decoded != null && decoded.containsKey(key)) {
+            return decoded.get(key);
+        }
+
+        Attribute attribute = attributes.get(name);
+        String value = attribute == null ? null : decode(attribute.get());
+        if (decoded == null) {
+            decoded = new HashMap<>(4);
+        }
+        decoded.put(key, value);
+        return value;
+    }
+
+    /**
+     * Gets the first value of an attribute converted to the requested type.
+     * Supported types are String, byte[], Integer, Long and Boolean.
+     *
+     * @param <V>  The requested type.
+     * @param name The attribute name.
+     * @param type The class of the requested type.
+     * @return The converted value, or null if the attribute is absent.
+     * @throws NamingException If an error occurs while reading the attribute.
+     */
+    public <V> V get(String name, Class<V> type) throws NamingException {
+        if (type == byte[].class) {
+            Attribute attribute = attributes.get(name);
+            if (attribute == null) {
+                return null;
+            }
+            Object raw = attribute.get();
+            // Copy so callers cannot alter the raw value seen by later reads
+            return type.cast(raw instanceof byte[] ? ((byte[]) raw).clone() : raw.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        String value = get(name);
+        if (value == null || type == String.class) {
+            return type.cast(value);
+        } else if (type == Integer.class) {
+            return type.cast(Integer.valueOf(value));
+        } else if (type == Long.class) {
+            return type.cast(Long.valueOf(value));
+        } else if (type == Boolean.class) {
+            // LDAP booleans are "TRUE" or "FALSE"
+            return type.cast(Boolean.valueOf(value));
+        }
+        throw new IllegalArgumentException("Unsupported attribute type: " + type.getName());
+    }
+
+    /**
+     * Gets all values of an attribute as Strings, decoding them on access.
+     *
+     * @param name The attribute name.
+     * @return The values, or an empty list if the attribute is absent.
+     * @throws NamingException If an error occurs while reading the attribute.
+     */
+    public List<String> getAll(String name) throws NamingException {
+        Attribute attribute = attributes.get(name);
+        if (attribute == null) {
+            return Collections.emptyList();
+        }
+
+        List<String> values = new ArrayList<>(attribute.size());
+        NamingEnumeration<?> all = attribute.getAll();
+        while (all.hasMore()) {
+            values.add(decode(all.next()));
+        }
+        return values;
+    }
+
+    /**
+     * Maps the entry to a new instance of the specified class, decoding every attribute matching a declared field.
+     *
+     * @param <T>   The type of the class to map the entry to.
+     * @param clazz The class to map the entry to.
+     * @return An instance of the specified class with the mapped attributes.
+     * @throws Exception If an error occurs while reading the attributes or setting the fields.
+     */
+    public <T> T materialize(Class<T> clazz) throws Exception {
+        T obj = clazz.getDeclaredConstructor().newInstance();
+        for (Field field : clazz.getDeclaredFields()) {
+            String value = get(field.getName());
+            if (value != null) {
+                field.setAccessible(true);
+                field.set(obj, value);
+            }
+        }
+        return obj;
+    }
+
+    /**
+     * Decodes a raw attribute value to a String.
+     *
+     * @param raw The raw value, either bytes or an already decoded object.
+     * @return The decoded value.
+     */
+    private static String decode(Object raw) {
+        if (raw instanceof byte[]) {
+            return new String((byte[]) raw, StandardCharsets.UTF_8);
+        }
+        return raw == null ? null : raw.toString();
+    }
+}
@@ -0,0 +1,52 @@
+package dev.matteuo.ldap.utility;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * LookupResult holds the outcome of a bulk lookup: the entries found for each key and the keys that matched nothing.
+ *
+ * @param <T> The type of the class the entries are mapped to.
+ */
+public class LookupResult<T> {
+
+    /**
+     * Mapped entries indexed by the requested key.
+     */
+    private final Map<String, T> found;
+
+    /**
+     * Requested keys for which no entry was found.
+     */
+    private final Set<String> missing;
+
+    /**
+     * Constructor for LookupResult.
+     *
+     * @param found   The mapped entries indexed by the requested key.
+     * @param missing The requested keys for which no entry was found.
+     */
+    public LookupResult(Map<String, T> found, Set<String> missing) {
+        this.found = Collections.unmodifiableMap(found);
+        this.missing = Collections.unmodifiableSet(missing);
+    }
+
+    /**
+     * Gets the mapped entries indexed by the requested key.
+     *
+     * @return An unmodifiable map of key to mapped entry.
+     */
+    public Map<String, T> getFound() {
+        return found;
+    }
+
+    /**
+     * Gets the requested keys for which no entry was found.
+     *
+     * @return An unmodifiable set of missing keys.
+     */
+    public Set<String> getMissing() {
+        return missing;
+    }
+}
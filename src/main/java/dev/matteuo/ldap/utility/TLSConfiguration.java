@@ -0,0 +1,235 @@
+package dev.matteuo.ldap.utility;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TLSConfiguration holds the TLS settings shared by every connection of an {@link LDAPUtility}.
+ * <p>
+ * All connections are created from the same {@link SSLContext}, so its client session cache lets reconnects
+ * resume earlier sessions instead of performing a full handshake. Handshake counts and times are recorded
+ * for monitoring.
+ */
+public class TLSConfiguration {
+
+    /**
+     * How TLS is established on a connection.
+     */
+    public enum Mode {
+
+        /**
+         * TLS from the first byte, usually on port 636 with an ldaps:// URL.
+         */
+        LDAPS,
+
+        /**
+         * Plain connection upgraded with the StartTLS extended operation, usually on port 389 with an ldap:// URL.
+         */
+        START_TLS
+    }
+
+    /**
+     * SSL context every connection is created from.
+     */
+    private final SSLContext sslContext;
+
+    /**
+     * How TLS is established on a connection.
+     */
+    private final Mode mode;
+
+    /**
+     * Socket factory applying this configuration.
+     */
+    private final TLSSocketFactory socketFactory;
+
+    /**
+     * Enabled protocols, or null for the defaults of the SSL context.
+     */
+    private volatile String[] protocols;
+
+    /**
+     * Enabled cipher suites, or null for the defaults of the SSL context.
+     */
+    private volatile String[] cipherSuites;
+
+    /**
+     * Number of completed handshakes.
+     */
+    private final AtomicLong handshakeCount = new AtomicLong();
+
+    /**
+     * Number of completed handshakes that resumed an earlier session.
+     */
+    private final AtomicLong resumedHandshakeCount = new AtomicLong();
+
+    /**
+     * Total time spent in handshakes, in nanoseconds.
+     */
+    private final AtomicLong handshakeNanos = new AtomicLong();
+
+    /**
+     * Constructor for TLSConfiguration.
+     *
+     * @param sslContext The SSL context every connection is created from.
+     * @param mode       How TLS is established on a connection.
+     */
+    public TLSConfiguration(SSLContext sslContext, Mode mode) {
+        this.sslContext = sslContext;
+        this.mode = mode;
+        this.socketFactory = new TLSSocketFactory(this);
+    }
+
+    /**
+     * Creates a configuration with a dedicated SSL context using the default key and trust managers.
+     *
+     * @param mode How TLS is established on a connection.
+     * @return A new TLSConfiguration.
+     * @throws GeneralSecurityException If the SSL context cannot be initialized.
+     */
+    public static TLSConfiguration createDefault(Mode mode) throws GeneralSecurityException {
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, null, null);
+        return new TLSConfiguration(sslContext, mode);
+    }
+
+    /**
+     * Gets the SSL context every connection is created from.
+     *
+     * @return The SSL context.
+     */
+    public SSLContext getSslContext() {
+        return sslContext;
+    }
+
+    /**
+     * Gets how TLS is established on a connection.
+     *
+     * @return The mode.
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Gets the socket factory applying this configuration.
+     *
+     * @return The socket factory.
+     */
+    public TLSSocketFactory getSocketFactory() {
+        return socketFactory;
+    }
+
+    /**
+     * Gets the enabled protocols.
+     *
+     * @return The protocols, or null for the defaults of the SSL context.
+     */
+    public String[] getProtocols() {
+        return protocols;
+    }
+
+    /**
+     * Sets the enabled protocols, e.g. TLSv1.3 and TLSv1.2.
+     *
+     * @param protocols The protocols, or null for the defaults of the SSL context.
+     * @return This configuration.
+     */
+    public TLSConfiguration setProtocols(String... protocols) {
+        this.protocols = protocols;
+        return this;
+    }
+
+    /**
+     * Gets the enabled cipher suites.
+     *
+     * @return The cipher suites, or null for the defaults of the SSL context.
+     */
+    public String[] getCipherSuites() {
+        return cipherSuites;
+    }
+
+    /**
+     * Sets the enabled cipher suites.
+     *
+     * @param cipherSuites The cipher suites, or null for the defaults of the SSL context.
+     * @return This configuration.
+     */
+    public TLSConfiguration setCipherSuites(String... cipherSuites) {
+        this.cipherSuites = cipherSuites;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of sessions kept for resumption.
+     *
+     * @param size The cache size, 0 for no limit.
+     * @return This configuration.
+     */
+    public TLSConfiguration setSessionCacheSize(int size) {
+        SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+        if (sessionContext != null) {
+            sessionContext.setSessionCacheSize(size);
+        }
+        return this;
+    }
+
+    /**
+     * Sets how long sessions are kept for resumption.
+     *
+     * @param seconds The session timeout in seconds, 0 for no limit.
+     * @return This configuration.
+     */
+    public TLSConfiguration setSessionTimeout(int seconds) {
+        SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+        if (sessionContext != null) {
+            sessionContext.setSessionTimeout(seconds);
+        }
+        return this;
+    }
+
+    /**
+     * Gets the number of completed handshakes.
+     *
+     * @return The handshake count.
+     */
+    public long getHandshakeCount() {
+        return handshakeCount.get();
+    }
+
+    /**
+     * Gets the number of completed handshakes that resumed an earlier session.
+     *
+     * @return The resumed handshake count.
+     */
+    public long getResumedHandshakeCount() {
+        return resumedHandshakeCount.get();
+    }
+
+    /**
+     * Gets the average handshake time.
+     *
+     * @return The average handshake time in milliseconds, or 0 if no handshake completed.
+     */
+    public double getAverageHandshakeMillis() {
+        long count = handshakeCount.get();
+        return count == 0 ? 0 : handshakeNanos.get() / (double) count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Records a completed handshake.
+     *
+     * @param nanos   The time spent in the handshake.
+     * @param resumed Whether an earlier session was resumed.
+     */
+    void recordHandshake(long nanos, boolean resumed) {
+        handshakeCount.incrementAndGet();
+        handshakeNanos.addAndGet(nanos);
+        if (resumed) {
+            resumedHandshakeCount.incrementAndGet();
+        }
+    }
+}
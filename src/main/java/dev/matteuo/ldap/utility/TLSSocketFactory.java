@@ -0,0 +1,139 @@
+package dev.matteuo.ldap.utility;
+
+import javax.net.SocketFactory;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * TLSSocketFactory creates TLS sockets from the shared SSL context of a {@link TLSConfiguration}, applying its
+ * protocols and cipher suites and recording handshake metrics.
+ * <p>
+ * JNDI instantiates socket factories by class name through {@link #getDefault()}, so {@link LDAPUtility} installs
+ * the factory of its configuration on the current thread while it creates a context.
+ */
+public class TLSSocketFactory extends SSLSocketFactory {
+
+    /**
+     * Factory installed on the current thread while a context is being created.
+     */
+    private static final ThreadLocal<TLSSocketFactory> current = new ThreadLocal<>();
+
+    /**
+     * Configuration applied to every socket.
+     */
+    private final TLSConfiguration configuration;
+
+    /**
+     * Socket factory of the shared SSL context.
+     */
+    private final SSLSocketFactory delegate;
+
+    /**
+     * Constructor for TLSSocketFactory.
+     *
+     * @param configuration The configuration applied to every socket.
+     */
+    TLSSocketFactory(TLSConfiguration configuration) {
+        this.configuration = configuration;
+        this.delegate = configuration.getSslContext().getSocketFactory();
+    }
+
+    /**
+     * Returns the factory installed on the current thread, or the JVM default SSL socket factory.
+     * Called by JNDI when the java.naming.ldap.factory.socket property names this class.
+     *
+     * @return A socket factory.
+     */
+    public static SocketFactory getDefault() {
+        TLSSocketFactory factory = current.get();
+        return factory != null ? factory : SSLSocketFactory.getDefault();
+    }
+
+    /**
+     * Installs a factory on the current thread.
+     *
+     * @param factory The factory, or null to remove the installed one.
+     */
+    static void setCurrent(TLSSocketFactory factory) {
+        if (factory == null) {
+            current.remove();
+        } else {
+            current.set(factory);
+        }
+    }
+
+    @Override
+    public String[] getDefaultCipherSuites() {
+        String[] cipherSuites = configuration.getCipherSuites();
+        return cipherSuites != null ? cipherSuites.clone() : delegate.getDefaultCipherSuites();
+    }
+
+    @Override
+    public String[] getSupportedCipherSuites() {
+        return delegate.getSupportedCipherSuites();
+    }
+
+    @Override
+    public Socket createSocket() throws IOException {
+        return configure(delegate.createSocket());
+    }
+
+    @Override
+    public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+        return configure(delegate.createSocket(socket, host, port, autoClose));
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        return configure(delegate.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+        return configure(delegate.createSocket(host, port, localHost, localPort));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+        return configure(delegate.createSocket(host, port));
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+        return configure(delegate.createSocket(address, port, localAddress, localPort));
+    }
+
+    /**
+     * Applies the configured protocols and cipher suites and registers the handshake metrics listener.
+     * The handshake itself is left to the caller, and is timed from this point to its completion.
+     *
+     * @param socket The socket created by the shared SSL context.
+     * @return The configured socket.
+     */
+    private Socket configure(Socket socket) {
+        if (socket instanceof SSLSocket) {
+            SSLSocket sslSocket = (SSLSocket) socket;
+            String[] protocols = configuration.getProtocols();
+            if (protocols != null) {
+                sslSocket.setEnabledProtocols(protocols);
+            }
+            String[] cipherSuites = configuration.getCipherSuites();
+            if (cipherSuites != null) {
+                sslSocket.setEnabledCipherSuites(cipherSuites);
+            }
+
+            long startNanos = System.nanoTime();
+            long startMillis = System.currentTimeMillis();
+            sslSocket.addHandshakeCompletedListener(event -> {
+                SSLSession session = event.getSession();
+                // A session created before this socket was resumed from the cache
+                configuration.recordHandshake(System.nanoTime() - startNanos, session.getCreationTime() < startMillis);
+            });
+        }
+        return socket;
+    }
+}
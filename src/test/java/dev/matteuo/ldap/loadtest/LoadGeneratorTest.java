@@ -0,0 +1,114 @@
+package dev.matteuo.ldap.loadtest;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import dev.matteuo.ldap.utility.LDAPUtility;
+import org.junit.Test;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the LoadGenerator and LatencyHistogram classes.
+ */
+public class LoadGeneratorTest {
+
+    /**
+     * Tests the percentiles reported by LatencyHistogram.
+     */
+    @Test
+    public void testLatencyHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 100L);
+        }
+
+        assertEquals(1000, histogram.getTotalCount());
+        assertEquals(100000, histogram.getMaxValue());
+        assertEquals(50000, histogram.getValueAtPercentile(50), 50000 * 0.02);
+        assertEquals(99000, histogram.getValueAtPercentile(99), 99000 * 0.02);
+        assertEquals(100000, histogram.getValueAtPercentile(100));
+    }
+
+    /**
+     * Tests that every operation of the mix succeeds against the embedded server.
+     *
+     * @throws Exception If an error occurs during the test.
+     */
+    @Test
+    public void testExecuteAgainstEmbeddedServer() throws Exception {
+        Map<String, String> options = new HashMap<>();
+        options.put("users", "100");
+        options.put("lookup-keys", "10");
+        InMemoryDirectoryServer server = LoadGenerator.startEmbeddedServer(options);
+
+        try {
+            LDAPUtility ldapUtility = new LDAPUtility("ldap://localhost:" + server.getListenPort(), false);
+            LoadGenerator generator = new LoadGenerator(ldapUtility, options);
+            for (LoadGenerator.Operation operation : LoadGenerator.Operation.values()) {
+                generator.execute(operation);
+            }
+        } finally {
+            server.shutDown(true);
+        }
+    }
+
+    /**
+     * Tests that throughput in rate mode reflects what a slow server sustains rather than the target rate.
+     *
+     * @throws Exception If an error occurs during the test.
+     */
+    @Test
+    public void testRateModeReportsSustainedThroughput() throws Exception {
+        Map<String, String> options = new HashMap<>();
+        options.put("concurrency", "1");
+        options.put("rate", "200");
+        options.put("warmup", "0");
+        options.put("duration", "1");
+
+        // Each operation takes 10 ms, so a single worker sustains at most 100 ops/s
+        LoadGenerator generator = new LoadGenerator(new LDAPUtility("ldap://localhost:389", false), options) {
+            @Override
+            void execute(Operation operation) throws Exception {
+                Thread.sleep(10);
+            }
+        };
+
+        double throughput = generator.run();
+        assertTrue("Reported " + throughput + " ops/s", throughput > 0 && throughput < 150);
+    }
+
+    /**
+     * Tests that the report explains failures by exception class.
+     *
+     * @throws Exception If an error occurs during the test.
+     */
+    @Test
+    public void testReportsFailureCauses() throws Exception {
+        Map<String, String> options = new HashMap<>();
+        options.put("concurrency", "1");
+        options.put("rate", "100");
+        options.put("warmup", "0");
+        options.put("duration", "1");
+        options.put("mix", "search=1");
+
+        LoadGenerator generator = new LoadGenerator(new LDAPUtility("ldap://localhost:389", false), options) {
+            @Override
+            void execute(Operation operation) throws Exception {
+                throw new IllegalStateException("No entry for user1");
+            }
+        };
+
+        PrintStream out = System.out;
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(report, true, "UTF-8"));
+        try {
+            generator.run();
+        } finally {
+            System.setOut(out);
+        }
+
+        assertTrue(report.toString("UTF-8").contains("search java.lang.IllegalStateException x100: No entry for user1"));
+    }
+}
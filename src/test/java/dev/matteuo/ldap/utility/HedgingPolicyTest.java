@@ -0,0 +1,196 @@
+package dev.matteuo.ldap.utility;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.listener.interceptor.InMemoryInterceptedSearchRequest;
+import com.unboundid.ldap.listener.interceptor.InMemoryOperationInterceptor;
+import dev.matteuo.ldap.model.LDAPObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import javax.naming.AuthenticationException;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for LDAPUtility with a HedgingPolicy, using a slow primary server and a fast replica.
+ */
+public class HedgingPolicyTest {
+
+    private static final long PRIMARY_DELAY_MILLIS = 2000;
+
+    private InMemoryDirectoryServer primary;
+    private InMemoryDirectoryServer replica;
+    private LDAPUtility ldapUtility;
+
+    /**
+     * Sets up a primary server that stalls on every search and a replica that answers immediately.
+     *
+     * @throws Exception If an error occurs during setup.
+     */
+    @Before
+    public void setUp() throws Exception {
+        InMemoryDirectoryServerConfig primaryConfig = new InMemoryDirectoryServerConfig("dc=example,dc=com");
+        primaryConfig.addInMemoryOperationInterceptor(new InMemoryOperationInterceptor() {
+            @Override
+            public void processSearchRequest(InMemoryInterceptedSearchRequest request) {
+                try {
+                    Thread.sleep(PRIMARY_DELAY_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        primary = startServer(primaryConfig);
+        replica = startServer(new InMemoryDirectoryServerConfig("dc=example,dc=com"));
+
+        ldapUtility = new LDAPUtility("ldap://localhost:" + primary.getListenPort(), false);
+    }
+
+    /**
+     * Starts an in-memory LDAP server and populates it with test data.
+     *
+     * @param config The configuration of the server.
+     * @return The started server.
+     * @throws Exception If an error occurs while starting or populating the server.
+     */
+    private static InMemoryDirectoryServer startServer(InMemoryDirectoryServerConfig config) throws Exception {
+        InMemoryDirectoryServer server = new InMemoryDirectoryServer(config);
+        server.startListening();
+        server.add("dn: dc=example,dc=com",
+                "objectClass: domain",
+                "dc: example");
+        server.add("dn: cn=John Doe,dc=example,dc=com",
+                "objectClass: inetOrgPerson",
+                "cn: John Doe",
+                "sn: Doe",
+                "mail: john.doe@example.com",
+                "userPassword: password");
+        return server;
+    }
+
+    /**
+     * Shuts down both servers after each test.
+     */
+    @After
+    public void tearDown() {
+        primary.shutDown(true);
+        replica.shutDown(true);
+    }
+
+    /**
+     * Tests that slow searches and authentications are answered by the replica.
+     *
+     * @throws Exception If an error occurs during the test.
+     */
+    @Test
+    public void testHedgeWinsAgainstSlowPrimary() throws Exception {
+        HedgingPolicy policy = new HedgingPolicy(Collections.singletonList("ldap://localhost:" + replica.getListenPort()), 50)
+                .setMaxHedgeRatio(1.0);
+        ldapUtility.setHedgingPolicy(policy);
+
+        long start = System.nanoTime();
+        List<LDAPObject> results = ldapUtility.search("dc=example,dc=com", "(sn=Doe)", LDAPObject.class);
+        LDAPObject john = ldapUtility.authentication("cn=John Doe,dc=example,dc=com", "(cn=John Doe)", "password", LDAPObject.class);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(1, results.size());
+        assertEquals("John Doe", john.getCn());
+        assertTrue("Took " + elapsedMillis + " ms", elapsedMillis < PRIMARY_DELAY_MILLIS);
+        assertEquals(2, policy.getHedgesSent());
+        assertEquals(2, policy.getHedgesWon());
+    }
+
+    /**
+     * Tests that no hedge is sent once the budget is exhausted.
+     *
+     * @throws Exception If an error occurs during the test.
+     */
+    @Test
+    public void testHedgeBudget() throws Exception {
+        HedgingPolicy policy = new HedgingPolicy(Collections.singletonList("ldap://localhost:" + replica.getListenPort()), 50)
+                .setMaxHedgeRatio(0.5);
+        ldapUtility.setHedgingPolicy(policy);
+
+        // The first request earns half a token, not enough to hedge
+        long start = System.nanoTime();
+        ldapUtility.search("dc=example,dc=com", "(sn=Doe)", LDAPObject.class);
+        assertTrue((System.nanoTime() - start) / 1_000_000 >= PRIMARY_DELAY_MILLIS);
+        assertEquals(0, policy.getHedgesSent());
+
+        // The second request completes the token and is hedged
+        ldapUtility.search("dc=example,dc=com", "(sn=Doe)", LDAPObject.class);
+        assertEquals(1, policy.getHedgesSent());
+        assertEquals(1, policy.getHedgesWon());
+    }
+
+    /**
+     * Tests that no hedge is sent when every hedging thread is busy.
+     *
+     * @throws Exception If an error occurs during the test.
+     */
+    @Test
+    public void testNoHedgeWhenThreadsBusy() throws Exception {
+        HedgingPolicy policy = new HedgingPolicy(Collections.singletonList("ldap://localhost:" + replica.getListenPort()), 50)
+                .setMaxHedgeRatio(1.0)
+                .setMaxThreads(1);
+        ldapUtility.setHedgingPolicy(policy);
+
+        // The original request holds the only thread, so the hedge is rejected and the primary answers
+        List<LDAPObject> results = ldapUtility.search("dc=example,dc=com", "(sn=Doe)", LDAPObject.class);
+        assertEquals(1, results.size());
+        assertEquals(0, policy.getHedgesSent());
+    }
+
+    /**
+     * Tests that a bind rejected before the delay is not hedged.
+     *
+     * @throws Exception If an error occurs during the test.
+     */
+    @Test
+    public void testRejectedBindIsNotHedged() throws Exception {
+        HedgingPolicy policy = new HedgingPolicy(Collections.singletonList("ldap://localhost:" + replica.getListenPort()), 500)
+                .setMaxHedgeRatio(1.0);
+        ldapUtility.setHedgingPolicy(policy);
+
+        try {
+            ldapUtility.authentication("cn=John Doe,dc=example,dc=com", "(cn=John Doe)", "wrong", LDAPObject.class);
+            fail("Expected the bind to be rejected");
+        } catch (AuthenticationException e) {
+            // expected
+        }
+        assertEquals(0, policy.getHedgesSent());
+    }
+
+    /**
+     * Tests that the original attempt is cancelled when the caller is interrupted during the hedge delay.
+     *
+     * @throws Exception If an error occurs during the test.
+     */
+    @Test
+    public void testInterruptedCallerCancelsAttempt() throws Exception {
+        HedgingPolicy policy = new HedgingPolicy(Collections.singletonList("ldap://localhost:" + replica.getListenPort()), 1000)
+                .setMaxHedgeRatio(1.0);
+        ldapUtility.setHedgingPolicy(policy);
+
+        Thread caller = new Thread(() -> {
+            try {
+                ldapUtility.search("dc=example,dc=com", "(sn=Doe)", LDAPObject.class);
+            } catch (Exception e) {
+                // expected
+            }
+        });
+        caller.start();
+        Thread.sleep(200);
+        caller.interrupt();
+        caller.join();
+
+        // The primary attempt would otherwise hold its thread until the server answers
+        for (int i = 0; i < 50 && policy.getRunningAttempts() > 0; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, policy.getRunningAttempts());
+        assertEquals(0, policy.getHedgesSent());
+    }
+}
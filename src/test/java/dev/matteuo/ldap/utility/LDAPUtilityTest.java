@@ -2,12 +2,24 @@ package dev.matteuo.ldap.utility;
 
 import com.unboundid.ldap.listener.InMemoryDirectoryServer;
 import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.listener.interceptor.InMemoryInterceptedSearchRequest;
+import com.unboundid.ldap.listener.interceptor.InMemoryOperationInterceptor;
 import dev.matteuo.ldap.constants.LDAPConstants;
 import dev.matteuo.ldap.model.LDAPObject;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import javax.naming.LimitExceededException;
+import javax.naming.directory.BasicAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import static org.junit.Assert.*;
 
 /**
@@ -25,8 +37,17 @@ public class LDAPUtilityTest {
      */
     @Before
     public void setUp() throws Exception {
+        startServer(new InMemoryDirectoryServerConfig("dc=example,dc=com"));
+    }
+
+    /**
+     * Starts the in-memory LDAP server with the given configuration and populates it with test data.
+     *
+     * @param config The configuration of the in-memory LDAP server.
+     * @throws Exception If an error occurs while starting or populating the server.
+     */
+    private void startServer(InMemoryDirectoryServerConfig config) throws Exception {
         // Configuration of the in-memory LDAP server
-        InMemoryDirectoryServerConfig config = new InMemoryDirectoryServerConfig("dc=example,dc=com");
         config.addAdditionalBindCredentials("cn=Directory Manager", "password");
         server = new InMemoryDirectoryServer(config);
         server.startListening();
@@ -104,6 +125,299 @@ public class LDAPUtilityTest {
         assertNotNull(jane);
     }
 
+    /**
+     * Tests the lookupAll method of LDAPUtility with one key per chunk.
+     *
+     * @throws Exception If an error occurs during the test.
+     */
+    @Test
+    public void testLookupAll() throws Exception {
+        String baseDn = "dc=example,dc=com";
+        List<String> keys = Arrays.asList("john.doe@example.com", "JANE.DOE@example.com", "john.doe@example.com", "missing*)(mail=*");
+
+        LookupResult<LDAPObject> result = ldapUtility.lookupAll(baseDn, "mail", keys, LDAPObject.class, 1, 2);
+
+        assertEquals(2, result.getFound().size());
+        assertEquals("John Doe", result.getFound().get("john.doe@example.com").getCn());
+        assertEquals("Jane Doe", result.getFound().get("JANE.DOE@example.com").getCn());
+        assertEquals(1, result.getMissing().size());
+        assertTrue(result.getMissing().contains("missing*)(mail=*"));
+    }
+
+    /**
+     * Tests that lookupAll reports every spelling of keys differing only in case.
+     *
+     * @throws Exception If an error occurs during the test.
+     */
+    @Test
+    public void testLookupAllReportsEverySpelling() throws Exception {
+        String baseDn = "dc=example,dc=com";
+        List<String> keys = Arrays.asList("John.Doe@example.com", "john.doe@example.com", "Nobody@example.com", "nobody@example.com");
+
+        LookupResult<LDAPObject> result = ldapUtility.lookupAll(baseDn, "mail", keys, LDAPObject.class);
+
+        assertEquals(2, result.getFound().size());
+        assertSame(result.getFound().get("John.Doe@example.com"), result.getFound().get("john.doe@example.com"));
+        assertEquals("John Doe", result.getFound().get("john.doe@example.com").getCn());
+        assertEquals(2, result.getMissing().size());
+        assertTrue(result.getMissing().contains("Nobody@example.com"));
+        assertTrue(result.getMissing().contains("nobody@example.com"));
+    }
+
+    /**
+     * Tests that case-exact lookups keep keys differing in case apart, and that entries matched by the server under
+     * an unsupported matching rule are reported missing.
+     *
+     * @throws Exception If an error occurs during the test.
+     */
+    @Test
+    public void testLookupAllCaseExact() throws Exception {
+        String baseDn = "dc=example,dc=com";
+        List<String> keys = Arrays.asList("john.doe@example.com", "JOHN.DOE@EXAMPLE.COM");
+
+        LookupResult<LDAPObject> result = ldapUtility.lookupAll(baseDn, "mail", keys, LDAPObject.class, 10, 1, false);
+
+        assertEquals(1, result.getFound().size());
+        assertEquals("John Doe", result.getFound().get("john.doe@example.com").getCn());
+        assertEquals(Collections.singleton("JOHN.DOE@EXAMPLE.COM"), result.getMissing());
+
+        // telephoneNumber matching ignores spaces, which the client does not replicate
+        server.modify("dn: cn=John Doe,dc=example,dc=com",
+                "changetype: modify",
+                "add: telephoneNumber",
+                "telephoneNumber: +1 555 0100");
+        result = ldapUtility.lookupAll(baseDn, "telephoneNumber", Collections.singletonList("+15550100"), LDAPObject.class);
+        assertTrue(result.getFound().isEmpty());
+        assertEquals(Collections.singleton("+15550100"), result.getMissing());
+    }
+
+    /**
+     * Tests the searchLazy method of LDAPUtility and materialization of lazy entries.
+     *
+     * @throws Exception If an error occurs during the test.
+     */
+    @Test
+    public void testSearchLazy() throws Exception {
+        String baseDn = "dc=example,dc=com";
+        String filter = "(cn=John Doe)";
+
+        List<LazyEntry> results = ldapUtility.searchLazy(baseDn, filter, LDAPObject.class);
+
+        assertEquals(1, results.size());
+        LazyEntry entry = results.get(0);
+        assertEquals("cn=John Doe,dc=example,dc=com", entry.getDn());
+        assertTrue(entry.getRawAttributes().get("sn").get() instanceof byte[]);
+        assertEquals("Doe", entry.get("sn"));
+        assertEquals("john.doe@example.com", entry.get("MAIL", String.class));
+        byte[] sn = entry.get("sn", byte[].class);
+        assertArrayEquals("Doe".getBytes("UTF-8"), sn);
+        sn[0] = 'X';
+        assertArrayEquals("Doe".getBytes("UTF-8"), entry.get("sn", byte[].class));
+        assertNull(entry.get("userPassword"));
+
+        LDAPObject john = entry.materialize(LDAPObject.class);
+        assertEquals("John Doe", john.getCn());
+        assertEquals("Doe", john.getSn());
+        assertEquals("john.doe@example.com", john.getMail());
+    }
+
+    /**
+     * Tests the searchColumnar method of LDAPUtility.
+     *
+     * @throws Exception If an error occurs during the test.
+     */
+    @Test
+    public void testSearchColumnar() throws Exception {
+        String baseDn = "dc=example,dc=com";
+        String filter = "(objectClass=inetOrgPerson)";
+        String[] attributes = {"cn", "sn", "mail"};
+
+        ColumnarResult result = ldapUtility.searchColumnar(baseDn, filter, attributes, 1000, 1000, LDAPConstants.SEARCH_SCOPE_SUBTREE);
+
+        assertEquals(2, result.size());
+        assertEquals(3, result.getColumns().size());
+
+        // Both entries share the same surname, stored once
+        ColumnarResult.Column sn = result.getColumn("SN");
+        assertEquals(1, sn.getDictionary().size());
+        assertEquals(sn.getCode(0), sn.getCode(1));
+        Map<String, Integer> counts = sn.valueCounts();
+        assertEquals(Integer.valueOf(2), counts.get("Doe"));
+
+        for (ColumnarResult.Row row : result) {
+            assertEquals("cn=" + row.get("cn") + ",dc=example,dc=com", row.getDn());
+        }
+        assertEquals(2, result.getColumn("mail").getDictionary().size());
+
+        // Every value of a multi-valued attribute is kept, the server adding the superior object classes
+        ColumnarResult classes = ldapUtility.searchColumnar(baseDn, filter, new String[]{"objectClass"},
+                1000, 1000, LDAPConstants.SEARCH_SCOPE_SUBTREE);
+        ColumnarResult.Column objectClass = classes.getColumn("objectClass");
+        assertTrue(objectClass.getAll(0).contains("inetOrgPerson"));
+        assertTrue(classes.getRow(1).getAll("objectClass").contains("person"));
+        Map<String, Integer> classCounts = objectClass.valueCounts();
+        assertEquals(Integer.valueOf(2), classCounts.get("inetOrgPerson"));
+        assertEquals(Integer.valueOf(2), classCounts.get("organizationalPerson"));
+        assertEquals(Integer.valueOf(2), classCounts.get("person"));
+
+        // The returned result is sealed
+        try {
+            result.addRow("cn=Late,dc=example,dc=com", new BasicAttributes("sn", "Late", true));
+            fail("Expected the result to be sealed");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Restarts the in-memory LDAP server with an interceptor that counts and delays search requests.
+     *
+     * @param searchCount The counter of search requests received.
+     * @throws Exception If an error occurs while restarting the server.
+     */
+    private void slowDownSearches(AtomicInteger searchCount) throws Exception {
+        server.shutDown(true);
+        InMemoryDirectoryServerConfig config = new InMemoryDirectoryServerConfig("dc=example,dc=com");
+        config.addInMemoryOperationInterceptor(new InMemoryOperationInterceptor() {
+            @Override
+            public void processSearchRequest(InMemoryInterceptedSearchRequest request) {
+                searchCount.incrementAndGet();
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        startServer(config);
+    }
+
+    /**
+     * Runs the same search from several threads at once.
+     *
+     * @param threads The number of threads.
+     * @return The futures of the searches.
+     */
+    private List<Future<List<LDAPObject>>> searchConcurrently(int threads) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<LDAPObject>>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return ldapUtility.search("dc=example,dc=com", "(sn=Doe)", LDAPObject.class);
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        return futures;
+    }
+
+    /**
+     * Tests that identical concurrent searches share one server operation when coalescing is enabled.
+     *
+     * @throws Exception If an error occurs during the test.
+     */
+    @Test
+    public void testRequestCoalescing() throws Exception {
+        AtomicInteger searchCount = new AtomicInteger();
+        slowDownSearches(searchCount);
+        ldapUtility.setRequestCoalescing(true);
+
+        Set<LDAPObject> instances = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Future<List<LDAPObject>> future : searchConcurrently(8)) {
+            assertEquals(2, future.get().size());
+            instances.addAll(future.get());
+        }
+
+        // Coalesced callers never share mapped objects
+        assertEquals(16, instances.size());
+        assertTrue(searchCount.get() < 8);
+        assertEquals(8 - searchCount.get(), ldapUtility.getCoalescedSearchCount());
+    }
+
+    /**
+     * Tests that a coalesced caller retries instead of failing when the leading caller is interrupted.
+     *
+     * @throws Exception If an error occurs during the test.
+     */
+    @Test
+    public void testCoalescedSearchSurvivesInterruptedLeader() throws Exception {
+        AtomicInteger searchCount = new AtomicInteger();
+        slowDownSearches(searchCount);
+        ldapUtility.setRequestCoalescing(true);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<LDAPObject>> leader = executor.submit(() -> ldapUtility.search("dc=example,dc=com", "(sn=Doe)", LDAPObject.class));
+            Thread.sleep(100);
+            Future<List<LDAPObject>> follower = executor.submit(() -> ldapUtility.search("dc=example,dc=com", "(sn=Doe)", LDAPObject.class));
+            Thread.sleep(100);
+            leader.cancel(true);
+
+            assertEquals(2, follower.get().size());
+            assertEquals(2, searchCount.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Tests that coalesced callers wait no longer than the concurrency timeout when a limiter is set.
+     *
+     * @throws Exception If an error occurs during the test.
+     */
+    @Test
+    public void testCoalescedSearchWaitIsBounded() throws Exception {
+        AtomicInteger searchCount = new AtomicInteger();
+        slowDownSearches(searchCount);
+        ldapUtility.setRequestCoalescing(true).setConcurrencyLimit(8, 100);
+
+        int succeeded = 0;
+        int timedOut = 0;
+        for (Future<List<LDAPObject>> future : searchConcurrently(3)) {
+            try {
+                future.get();
+                succeeded++;
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof LimitExceededException);
+                timedOut++;
+            }
+        }
+
+        assertEquals(1, succeeded);
+        assertEquals(2, timedOut);
+        assertEquals(1, searchCount.get());
+    }
+
+    /**
+     * Tests that searches beyond the concurrency limit time out while waiting for a slot.
+     *
+     * @throws Exception If an error occurs during the test.
+     */
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        AtomicInteger searchCount = new AtomicInteger();
+        slowDownSearches(searchCount);
+        ldapUtility.setConcurrencyLimit(1, 100);
+
+        int succeeded = 0;
+        int rejected = 0;
+        for (Future<List<LDAPObject>> future : searchConcurrently(3)) {
+            try {
+                future.get();
+                succeeded++;
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof LimitExceededException);
+                rejected++;
+            }
+        }
+
+        assertEquals(1, succeeded);
+        assertEquals(2, rejected);
+        assertEquals(1, searchCount.get());
+    }
+
     /**
      * Tests the getDistinctAttributes method of LDAPUtility.
      *
@@ -0,0 +1,157 @@
+package dev.matteuo.ldap.utility;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.listener.InMemoryListenerConfig;
+import com.unboundid.ldap.sdk.ResultCode;
+import com.unboundid.util.ssl.KeyStoreKeyManager;
+import com.unboundid.util.ssl.SSLUtil;
+import com.unboundid.util.ssl.TrustAllTrustManager;
+import com.unboundid.util.ssl.TrustStoreTrustManager;
+import com.unboundid.util.ssl.cert.ManageCertificates;
+import dev.matteuo.ldap.model.LDAPObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import javax.naming.AuthenticationException;
+import java.io.File;
+import java.io.InputStream;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for LDAPUtility over LDAPS and StartTLS with a TLSConfiguration.
+ */
+public class TLSConfigurationTest {
+
+    private static final String KEY_STORE_PASSWORD = "changeit";
+
+    private InMemoryDirectoryServer server;
+    private File keyStore;
+
+    /**
+     * Sets up an in-memory LDAP server with an LDAPS listener and a StartTLS-capable LDAP listener.
+     *
+     * @throws Exception If an error occurs during setup.
+     */
+    @Before
+    public void setUp() throws Exception {
+        // Self-signed certificate for localhost
+        keyStore = File.createTempFile("ldap-utility-", ".jks");
+        keyStore.delete();
+        ResultCode resultCode = ManageCertificates.main((InputStream) null, null, null,
+                "generate-self-signed-certificate",
+                "--keystore", keyStore.getAbsolutePath(),
+                "--keystore-password", KEY_STORE_PASSWORD,
+                "--keystore-type", "JKS",
+                "--alias", "server-cert",
+                "--subject-dn", "CN=localhost",
+                "--subject-alternative-name-dns", "localhost");
+        assertEquals(ResultCode.SUCCESS, resultCode);
+
+        SSLUtil serverSslUtil = new SSLUtil(
+                new KeyStoreKeyManager(keyStore, KEY_STORE_PASSWORD.toCharArray(), "JKS", null),
+                new TrustAllTrustManager());
+
+        InMemoryDirectoryServerConfig config = new InMemoryDirectoryServerConfig("dc=example,dc=com");
+        config.setListenerConfigs(
+                InMemoryListenerConfig.createLDAPSConfig("LDAPS", null, 0, serverSslUtil.createSSLServerSocketFactory(), null),
+                InMemoryListenerConfig.createLDAPConfig("LDAP", null, 0, serverSslUtil.createSSLSocketFactory()));
+        server = new InMemoryDirectoryServer(config);
+        server.startListening();
+
+        server.add("dn: dc=example,dc=com",
+                "objectClass: domain",
+                "dc: example");
+        server.add("dn: cn=John Doe,dc=example,dc=com",
+                "objectClass: inetOrgPerson",
+                "cn: John Doe",
+                "sn: Doe",
+                "mail: john.doe@example.com",
+                "userPassword: password");
+    }
+
+    /**
+     * Shuts down the in-memory LDAP server after each test.
+     */
+    @After
+    public void tearDown() {
+        server.shutDown(true);
+        keyStore.delete();
+    }
+
+    /**
+     * Creates a TLS configuration trusting the temporary server certificate.
+     *
+     * @param mode How TLS is established on a connection.
+     * @return A new TLSConfiguration.
+     * @throws Exception If the SSL context cannot be created.
+     */
+    private TLSConfiguration createConfiguration(TLSConfiguration.Mode mode) throws Exception {
+        SSLUtil clientSslUtil = new SSLUtil(new TrustStoreTrustManager(keyStore, KEY_STORE_PASSWORD.toCharArray(), "JKS", true));
+        return new TLSConfiguration(clientSslUtil.createSSLContext(), mode).setProtocols("TLSv1.2");
+    }
+
+    /**
+     * Waits for the asynchronous handshake notifications to reach the expected count.
+     *
+     * @param configuration The configuration recording the handshakes.
+     * @param expected      The expected handshake count.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private static void awaitHandshakes(TLSConfiguration configuration, long expected) throws InterruptedException {
+        for (int i = 0; i < 100 && configuration.getHandshakeCount() < expected; i++) {
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * Tests search and authentication over LDAPS, with reconnects resuming the first session.
+     *
+     * @throws Exception If an error occurs during the test.
+     */
+    @Test
+    public void testLdapsResumesSessions() throws Exception {
+        TLSConfiguration configuration = createConfiguration(TLSConfiguration.Mode.LDAPS);
+        LDAPUtility ldapUtility = new LDAPUtility("ldaps://localhost:" + server.getListenPort("LDAPS"), configuration);
+
+        for (int i = 0; i < 3; i++) {
+            List<LDAPObject> results = ldapUtility.search("dc=example,dc=com", "(sn=Doe)", LDAPObject.class);
+            assertEquals(1, results.size());
+        }
+        LDAPObject john = ldapUtility.authentication("cn=John Doe,dc=example,dc=com", "(cn=John Doe)", "password", LDAPObject.class);
+        assertEquals("John Doe", john.getCn());
+
+        awaitHandshakes(configuration, 4);
+        assertEquals(4, configuration.getHandshakeCount());
+        assertTrue(configuration.getResumedHandshakeCount() >= 3);
+        assertTrue(configuration.getAverageHandshakeMillis() > 0);
+    }
+
+    /**
+     * Tests search and authentication over StartTLS, including a rejected bind.
+     *
+     * @throws Exception If an error occurs during the test.
+     */
+    @Test
+    public void testStartTls() throws Exception {
+        TLSConfiguration configuration = createConfiguration(TLSConfiguration.Mode.START_TLS);
+        LDAPUtility ldapUtility = new LDAPUtility("ldap://localhost:" + server.getListenPort("LDAP"), configuration);
+
+        List<LDAPObject> results = ldapUtility.search("dc=example,dc=com", "(sn=Doe)", LDAPObject.class);
+        assertEquals(1, results.size());
+
+        LDAPObject john = ldapUtility.authentication("cn=John Doe,dc=example,dc=com", "(cn=John Doe)", "password", LDAPObject.class);
+        assertEquals("john.doe@example.com", john.getMail());
+
+        try {
+            ldapUtility.authentication("cn=John Doe,dc=example,dc=com", "(cn=John Doe)", "wrong", LDAPObject.class);
+            fail("Expected the bind to be rejected");
+        } catch (AuthenticationException e) {
+            // expected
+        }
+
+        awaitHandshakes(configuration, 3);
+        assertEquals(3, configuration.getHandshakeCount());
+    }
+}